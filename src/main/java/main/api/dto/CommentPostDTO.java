@@ -1,5 +1,6 @@
 package main.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -18,4 +19,8 @@ public class CommentPostDTO {
 
     private String text;
     private UserDTO user;
+
+    @JsonProperty("parent_id")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int parentId;
 }
@@ -0,0 +1,11 @@
+package main.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CursorDTO {
+    private long key;
+    private int id;
+}
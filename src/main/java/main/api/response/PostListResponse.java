@@ -1,5 +1,6 @@
 package main.api.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,7 +11,14 @@ import java.util.List;
 @Getter
 @Setter
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PostListResponse {
     private long count;
     private List<PostDTO> posts;
-}
\ No newline at end of file
+    private String nextCursor;
+
+    public PostListResponse(long count, List<PostDTO> posts) {
+        this.count = count;
+        this.posts = posts;
+    }
+}
@@ -15,6 +15,7 @@ public class PostResponse extends PostDTO {
     private String text;
     private CommentPostDTO[] comments;
     private String[] tags;
+    private int uniqueViewCount;
 
     public PostResponse(int id, long timeStamp, boolean active, UserDTO user, String title, String text,
                         int likeCount, int dislikeCount, int viewCount, CommentPostDTO[] comments, String[] tags) {
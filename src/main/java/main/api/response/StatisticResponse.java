@@ -15,4 +15,14 @@ public class StatisticResponse {
     private int dislikesCount;
     private int viewsCount;
     private long firstPublication;
+    private int uniqueViewsCount;
+
+    public StatisticResponse(int postsCount, int likesCount, int dislikesCount, int viewsCount,
+                             long firstPublication) {
+        this.postsCount = postsCount;
+        this.likesCount = likesCount;
+        this.dislikesCount = dislikesCount;
+        this.viewsCount = viewsCount;
+        this.firstPublication = firstPublication;
+    }
 }
@@ -6,9 +6,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
+import org.imgscalr.Scalr;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Component
 @ConfigurationProperties(prefix = "config")
 @Data
@@ -27,7 +31,6 @@ public class BlogConfig {
     public static final String POST_MODERATION_STATUS_ACCEPT = "accept";
     public static final String POST_MODERATION_STATUS_DECLINE = "decline";
 
-    public static final int LENGTH_CAPTCHA_SECRET_CODE = 22;
     public static final String MULTI_USER_MODE_FIELD_NAME = "MULTIUSER_MODE";
     public static final String POST_PRE_MODERATION_FIELD_NAME = "POST_PRE_MODERATION";
     public static final String STATISTIC_IS_PUBLIC_FIELD_NAME = "STATISTICS_IS_PUBLIC";
@@ -55,7 +58,6 @@ public class BlogConfig {
     public static final String ERROR_EMPTY_TITLE_POST_FRONTEND_MSG = "Заголовок не установлен";
     public static final String ERROR_EMPTY_TEXT_POST_FRONTEND_MSG = "Текст публикации пустой";
     public static final String ERROR_FAILED_UPLOAD_IMAGE_FRONTEND_MSG = "Ошибка загрузки файла на сервер";
-    public static final String ERROR_MISSING_FORMAT_IMAGE_FRONTEND_MSG = "В загружаемом файле отсутствует расширение";
     public static final String ERROR_FAILED_SIZE_IMAGE_FRONTEND_MSG = "Размер файла превышает допустимый размер";
     public static final String ERROR_FAILED_SIZE_PHOTO_FRONTEND_MSG = "Размер файла превышает допустимый размер";
     public static final String ERROR_FAILED_FORMAT_IMAGE_FRONTEND_MSG = "Недопустимое расширение загружаемого файла";
@@ -71,7 +73,6 @@ public class BlogConfig {
     public static final Marker MARKER_BLOG_INFO = MarkerManager.getMarker("BLOG_INFO");
     public static final Marker MARKER_UNSUCCESSFUL_REQUEST = MarkerManager.getMarker("UNSUCCESSFUL_REQUEST");
 
-    public static final String SYMBOLS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
 
     private String timeDateFormat;
 
@@ -82,27 +83,69 @@ public class BlogConfig {
     private int captchaWight;
     private String captchaFormat;
     private String captchaURL;
+    private String captchaSecretKey;
+    private boolean captchaPoolEnabled;
+    private int captchaPoolSize;
+    private long captchaPoolRefillInterval;
+    private int captchaPoolRefillBatch;
 
     private int postMinLengthTitle;
     private int postMinLengthText;
     private int postMaxLengthTitle;
     private int postMaxLengthText;
     private int postMaxLengthAnnounce;
+    private int postMaxLimit;
+    private boolean postCountersBackfillOnStart;
+    private int postCountersBackfillBatchSize;
+    private boolean postAnnounceRecomputeOnStart;
+    private int postAnnounceRecomputeBatchSize;
+    private boolean postDisplayTextRecomputeOnStart;
+    private int postDisplayTextRecomputeBatchSize;
+    private long postPublicationRetryDelay;
+    private boolean postListCacheEnabled;
+    private long postViewFlushInterval;
+    private long postViewSketchCacheSize;
+    private boolean searchIndexEnabled;
+    private String searchIndexPath;
+    private int searchIndexBatchSize;
+    private int searchIndexMaxDepth;
+    private boolean trigramIndexEnabled;
+    private boolean tagIndexEnabled;
+    private int tagAutocompleteLimit;
+    private boolean calendarIndexEnabled;
+    private boolean statisticSnapshotEnabled;
+    private boolean settingsSnapshotEnabled;
+    private int trigramIndexBatchSize;
+    private double trigramIndexMinSimilarity;
+    private int trigramIndexMaxCandidates;
+    private long postListCacheMaxWeight;
 
     private double imageMaxSize;
     private String[] imageFormat;
     private String imagePath;
     private int imageCountSubFolders;
     private int imageCountCharInFolderName;
-    private int imageCountCharInFileName;
     private String imagePrefixFileName;
+    private long imageUnreferencedTimeLive;
+    private boolean imageDerivativesEnabled;
+    private Map<String, Integer> imageDerivativeWidths = new LinkedHashMap<>();
+    private Scalr.Method imageDerivativeQuality;
+    private int imageDerivativeThreads;
+    private int imageDerivativeQueueSize;
+    private int imageDerivativeDisplayWidth;
     private String imageAvatarFormat;
     private int imageAvatarSize;
     private String imageAvatarFolderName;
     private int imageAvatarRemoveValue;
+    private int imageDecodeMaxConcurrent;
+    private long imageCacheMaxWeight;
+    private long imageCacheMaxFileSize;
+    private long imageDecodeWaitTimeout;
 
     private int postCommentMinLength;
     private int postCommentMaxLength;
+    private int postCommentDefaultLimit;
+    private int postCommentMaxLimit;
 
     private String mailFromUserName;
     private String mailDomainName;
@@ -24,8 +24,6 @@ public class MvcConfig implements WebMvcConfigurer {
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler(config.getImagePath() + "/**")
-                .addResourceLocations("file:" + config.getImagePath() + "/");
         registry.addResourceHandler("/**/" + config.getImagePath() + "/")
                 .addResourceLocations(config.getImagePath() + "/");
     }
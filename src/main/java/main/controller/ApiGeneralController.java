@@ -12,8 +12,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 
 @RestController
@@ -24,10 +24,11 @@ public class ApiGeneralController {
     private final InitResponse initResponse;
     private final SettingsService settingsService;
     private final TagService tagService;
+    private final CalendarService calendarService;
     private final PostService postService;
     private final UserService userService;
     private final StatisticService statisticService;
-    private final ImageService imageService;
+    private final UploadService uploadService;
 
     @GetMapping("/init")
     public InitResponse init() {
@@ -46,14 +47,14 @@ public class ApiGeneralController {
 
     @GetMapping("/calendar")
     public ResponseEntity<CalendarResponse> calendar(@RequestParam(defaultValue = "") String year) {
-        return new ResponseEntity<>(postService.getCalendar(year), HttpStatus.OK);
+        return new ResponseEntity<>(calendarService.getCalendar(year), HttpStatus.OK);
     }
 
     @PostMapping(value = "/image", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE},
             produces = {MediaType.APPLICATION_JSON_VALUE})
     @PreAuthorize("hasAuthority('user:write')")
-    public ResponseEntity<?> loadImage(MultipartFile image) throws IOException {
-        return new ResponseEntity<>(imageService.loadImage(image), HttpStatus.OK);
+    public ResponseEntity<?> loadImage(HttpServletRequest request) throws IOException {
+        return new ResponseEntity<>(uploadService.loadImage(request), HttpStatus.OK);
     }
 
     @PostMapping("/comment")
@@ -72,10 +73,8 @@ public class ApiGeneralController {
             consumes = {MediaType.MULTIPART_FORM_DATA_VALUE},
             produces = {MediaType.APPLICATION_JSON_VALUE})
     @PreAuthorize("hasAuthority('user:write')")
-    public ResponseEntity<ResultResponse> editUserProfile(
-            @RequestParam("photo") MultipartFile photo,
-            @ModelAttribute ProfileRequest profileRequest) throws IOException {
-        return new ResponseEntity<>(userService.editProfile(photo, profileRequest), HttpStatus.OK);
+    public ResponseEntity<ResultResponse> editUserProfile(HttpServletRequest request) throws IOException {
+        return new ResponseEntity<>(uploadService.editProfile(request), HttpStatus.OK);
     }
 
     @PostMapping("/profile/my")
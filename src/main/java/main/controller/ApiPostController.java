@@ -15,6 +15,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import javax.naming.AuthenticationException;
+import javax.servlet.http.HttpServletRequest;
 import java.security.Principal;
 import java.text.ParseException;
 
@@ -30,7 +31,11 @@ public class ApiPostController {
     public ResponseEntity<PostListResponse> posts(
             @RequestParam(defaultValue = "0") int offset,
             @RequestParam(defaultValue = "10") int limit,
-            @RequestParam(defaultValue = "recent") String mode) {
+            @RequestParam(defaultValue = "recent") String mode,
+            @RequestParam(required = false) String cursor) {
+        if (cursor != null) {
+            return new ResponseEntity<>(postService.getPostsByCursor(cursor, limit, mode), HttpStatus.OK);
+        }
         return new ResponseEntity<>(postService.getPosts(offset, limit, mode), HttpStatus.OK);
     }
 
@@ -77,8 +82,13 @@ public class ApiPostController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PostResponse> postByID(@PathVariable int id, Principal principal) {
-        return new ResponseEntity<>(postService.getPostByID(id, principal), HttpStatus.OK);
+    public ResponseEntity<PostResponse> postByID(
+            @PathVariable int id,
+            @RequestParam(defaultValue = "0") int commentOffset,
+            @RequestParam(defaultValue = "${config.post-comment-default-limit}") int commentLimit,
+            Principal principal, HttpServletRequest request) {
+        return new ResponseEntity<>(postService.getPostByID(id, principal, request.getRemoteAddr(),
+                commentOffset, commentLimit), HttpStatus.OK);
     }
 
     @PostMapping()
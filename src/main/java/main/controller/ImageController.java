@@ -0,0 +1,22 @@
+package main.controller;
+
+import lombok.AllArgsConstructor;
+import main.service.ImageResourceService;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@Controller
+@AllArgsConstructor
+public class ImageController {
+
+    private final ImageResourceService imageResourceService;
+
+    @GetMapping("/${config.image-path}/**")
+    public void getImage(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        imageResourceService.sendImage(request, response);
+    }
+}
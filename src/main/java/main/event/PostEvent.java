@@ -0,0 +1,26 @@
+package main.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import main.model.enums.PostEventType;
+
+@Getter
+@AllArgsConstructor
+public class PostEvent {
+    private final PostEventType type;
+    private final int postId;
+    private final PostSnapshot before;
+    private final PostSnapshot after;
+
+    public PostEvent(PostEventType type, int postId) {
+        this(type, postId, null, null);
+    }
+
+    public boolean isVisibleBefore() {
+        return before != null && before.isVisible();
+    }
+
+    public boolean isVisibleAfter() {
+        return after != null && after.isVisible();
+    }
+}
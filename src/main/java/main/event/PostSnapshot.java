@@ -0,0 +1,33 @@
+package main.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import main.model.Post;
+import main.model.Tag;
+import main.model.enums.ModerationStatusType;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Getter
+@AllArgsConstructor
+public class PostSnapshot {
+    private final byte isActive;
+    private final ModerationStatusType moderationStatus;
+    private final int userId;
+    private final LocalDateTime time;
+    private final byte isPublished;
+    private final String title;
+    private final Set<String> tags;
+
+    public static PostSnapshot of(Post post) {
+        return new PostSnapshot(post.getIsActive(), post.getModerationStatus(), post.getUser().getId(),
+                post.getTime(), post.getIsPublished(), post.getTitle(),
+                post.getTags().stream().map(Tag::getName).collect(Collectors.toSet()));
+    }
+
+    public boolean isVisible() {
+        return isActive == 1 && moderationStatus == ModerationStatusType.ACCEPTED && isPublished == 1;
+    }
+}
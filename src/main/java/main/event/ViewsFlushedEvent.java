@@ -0,0 +1,13 @@
+package main.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class ViewsFlushedEvent {
+    private final Map<Integer, Integer> views;
+    private final Map<Integer, Integer> uniqueViews;
+}
@@ -0,0 +1,13 @@
+package main.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class VoteEvent {
+    private final int postId;
+    private final int userId;
+    private final byte previousValue;
+    private final byte value;
+}
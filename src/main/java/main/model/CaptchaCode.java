@@ -1,27 +0,0 @@
-package main.model;
-
-import lombok.Getter;
-import lombok.Setter;
-
-import javax.persistence.*;
-import java.time.LocalDateTime;
-
-@Setter
-@Getter
-@Entity
-@Table(name = "captcha_codes")
-public class CaptchaCode {
-
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private int id;
-
-    @Column(columnDefinition = "DATETIME", nullable = false)
-    private LocalDateTime time;
-
-    @Column(columnDefinition = "TINYTEXT", nullable = false)
-    private String code;
-
-    @Column(name = "secret_code", columnDefinition = "TINYTEXT", nullable = false)
-    private String secretCode;
-}
@@ -0,0 +1,28 @@
+package main.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "data_migrations")
+public class DataMigration {
+
+    @Id
+    @Column(columnDefinition = "VARCHAR(100)")
+    private String name;
+
+    @Column(columnDefinition = "DATETIME", nullable = false)
+    private LocalDateTime time;
+
+    public DataMigration(String name, LocalDateTime time) {
+        this.name = name;
+        this.time = time;
+    }
+}
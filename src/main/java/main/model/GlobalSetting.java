@@ -23,4 +23,7 @@ public class GlobalSetting {
 
     @Column(columnDefinition = "VARCHAR(255)", nullable = false)
     private String value;
+
+    @Column(columnDefinition = "BIGINT DEFAULT 0", nullable = false)
+    private long version;
 }
@@ -13,7 +13,10 @@ import java.util.Set;
 @Setter
 @Getter
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_comment_count", columnList = "comment_count DESC, id"),
+        @Index(name = "idx_posts_vote_count", columnList = "vote_count DESC, id"),
+        @Index(name = "idx_posts_published_time", columnList = "is_published, time")})
 public class Post {
 
     @Id
@@ -38,15 +41,46 @@ public class Post {
     @Column(columnDefinition = "DATETIME", nullable = false)
     private LocalDateTime time;
 
+    @Column(name = "is_published", columnDefinition = "TINYINT DEFAULT 0", nullable = false)
+    private byte isPublished;
+
     @Column(columnDefinition = "VARCHAR(255)", nullable = false)
     private String title;
 
     @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
     private String text;
 
-    @Column(name = "view_count", columnDefinition = "INT", nullable = false)
+    @Column(columnDefinition = "TEXT")
+    private String announce;
+
+    @Column(name = "announce_length", columnDefinition = "INT")
+    private Integer announceLength;
+
+    @Column(name = "display_text", columnDefinition = "MEDIUMTEXT")
+    private String displayText;
+
+    @Column(name = "display_text_version", columnDefinition = "VARCHAR(20)")
+    private String displayTextVersion;
+
+    @Column(name = "view_count", columnDefinition = "INT", nullable = false, updatable = false)
     private int viewCount;
 
+    @Column(name = "like_count", columnDefinition = "INT DEFAULT 0", nullable = false,
+            insertable = false, updatable = false)
+    private int likeCount;
+
+    @Column(name = "dislike_count", columnDefinition = "INT DEFAULT 0", nullable = false,
+            insertable = false, updatable = false)
+    private int dislikeCount;
+
+    @Column(name = "vote_count", columnDefinition = "INT DEFAULT 0", nullable = false,
+            insertable = false, updatable = false)
+    private int voteCount;
+
+    @Column(name = "comment_count", columnDefinition = "INT DEFAULT 0", nullable = false,
+            insertable = false, updatable = false)
+    private int commentCount;
+
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<PostComment> postComments;
 
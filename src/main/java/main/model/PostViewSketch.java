@@ -0,0 +1,26 @@
+package main.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "post_view_sketches")
+public class PostViewSketch {
+
+    @Id
+    @Column(name = "post_id", columnDefinition = "INT")
+    private int postId;
+
+    @Column(columnDefinition = "VARBINARY(3072)", nullable = false)
+    private byte[] sketch;
+
+    @Column(name = "unique_count", columnDefinition = "INT", nullable = false)
+    private int uniqueCount;
+}
@@ -0,0 +1,32 @@
+package main.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "stored_images", indexes = {
+        @Index(name = "idx_stored_images_path", columnList = "path", unique = true)
+})
+public class StoredImage {
+
+    @Id
+    @Column(columnDefinition = "CHAR(64)")
+    private String hash;
+
+    @Column(columnDefinition = "VARCHAR(255)", nullable = false)
+    private String path;
+
+    @Column(columnDefinition = "BIGINT", nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", columnDefinition = "INT DEFAULT 0", nullable = false)
+    private int refCount;
+
+    @Column(columnDefinition = "DATETIME", nullable = false)
+    private LocalDateTime time;
+}
@@ -0,0 +1,10 @@
+package main.model.enums;
+
+public enum PostEventType {
+    ADDED,
+    CHANGED,
+    MODERATED,
+    VOTED,
+    COMMENTED,
+    PUBLISHED
+}
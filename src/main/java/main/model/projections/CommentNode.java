@@ -0,0 +1,7 @@
+package main.model.projections;
+
+public interface CommentNode {
+    int getId();
+
+    Integer getParentId();
+}
@@ -0,0 +1,19 @@
+package main.model.projections;
+
+import java.time.LocalDateTime;
+
+public interface CommentPreview {
+    int getId();
+
+    Integer getParentId();
+
+    LocalDateTime getTime();
+
+    String getText();
+
+    int getUserId();
+
+    String getUserName();
+
+    String getUserPhoto();
+}
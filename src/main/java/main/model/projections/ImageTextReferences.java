@@ -0,0 +1,7 @@
+package main.model.projections;
+
+public interface ImageTextReferences {
+    String getHash();
+
+    long getRefCount();
+}
@@ -0,0 +1,7 @@
+package main.model.projections;
+
+public interface PostAuthor {
+    int getId();
+
+    int getUserId();
+}
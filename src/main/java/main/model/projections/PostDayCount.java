@@ -0,0 +1,9 @@
+package main.model.projections;
+
+import java.util.Date;
+
+public interface PostDayCount {
+    Date getDay();
+
+    long getPostCount();
+}
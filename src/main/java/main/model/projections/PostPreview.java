@@ -0,0 +1,25 @@
+package main.model.projections;
+
+import java.time.LocalDateTime;
+
+public interface PostPreview {
+    int getId();
+
+    LocalDateTime getTime();
+
+    int getUserId();
+
+    String getUserName();
+
+    String getTitle();
+
+    String getAnnounce();
+
+    int getLikeCount();
+
+    int getDislikeCount();
+
+    int getCommentCount();
+
+    int getViewCount();
+}
@@ -0,0 +1,9 @@
+package main.model.projections;
+
+public interface PostSearchSource {
+    int getId();
+
+    String getTitle();
+
+    String getText();
+}
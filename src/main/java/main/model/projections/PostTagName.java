@@ -0,0 +1,7 @@
+package main.model.projections;
+
+public interface PostTagName {
+    int getPostId();
+
+    String getName();
+}
@@ -0,0 +1,7 @@
+package main.model.projections;
+
+public interface PostTitle {
+    int getId();
+
+    String getTitle();
+}
@@ -0,0 +1,7 @@
+package main.model.projections;
+
+public interface TagPostCount {
+    String getName();
+
+    long getPostCount();
+}
@@ -1,9 +1,9 @@
 package main.model.repositories;
 
-import main.model.CaptchaCode;
+import main.model.DataMigration;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface CaptchaCodeRepository extends CrudRepository<CaptchaCode, Integer> {
+public interface DataMigrationRepository extends CrudRepository<DataMigration, String> {
 }
@@ -1,12 +1,18 @@
 package main.model.repositories;
 
 import main.model.GlobalSetting;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface GlobalSettingRepository extends CrudRepository<GlobalSetting, Integer> {
     GlobalSetting findByCode(String code);
 
     boolean existsByCodeAndValueIgnoreCase(String code, String value);
+
+    @Query(value = "SELECT MAX(s.version) FROM GlobalSetting s")
+    Optional<Long> findMaxVersion();
 }
@@ -1,9 +1,28 @@
 package main.model.repositories;
 
 import main.model.PostComment;
+import main.model.projections.CommentNode;
+import main.model.projections.CommentPreview;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface PostCommentRepository extends CrudRepository<PostComment, Integer> {
+
+    @Query(value = "SELECT c.id AS id, c.parent.id AS parentId FROM PostComment c " +
+            "WHERE c.post.id = :postId " +
+            "ORDER BY c.time, c.id")
+    List<CommentNode> findAllNodesByPostId(@Param("postId") int postId);
+
+    @Query(value = "SELECT c.id AS id, c.parent.id AS parentId, c.time AS time, c.text AS text, " +
+            "u.id AS userId, u.name AS userName, u.photo AS userPhoto " +
+            "FROM PostComment c " +
+            "JOIN c.user u " +
+            "WHERE c.id IN :ids")
+    List<CommentPreview> findAllPreviewsByIds(@Param("ids") Collection<Integer> ids);
 }
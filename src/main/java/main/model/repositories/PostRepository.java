@@ -3,95 +3,198 @@ package main.model.repositories;
 import main.model.Post;
 import main.model.User;
 import main.model.enums.ModerationStatusType;
+import main.model.projections.PostAuthor;
+import main.model.projections.PostDayCount;
+import main.model.projections.PostPreview;
+import main.model.projections.PostSearchSource;
+import main.model.projections.PostTagName;
+import main.model.projections.PostTitle;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PostRepository extends CrudRepository<Post, Integer> {
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
+    String SELECT_POST_PREVIEW = "SELECT p.id AS id, p.time AS time, u.id AS userId, u.name AS userName, " +
+            "p.title AS title, p.announce AS announce, " +
+            "p.likeCount AS likeCount, p.dislikeCount AS dislikeCount, p.commentCount AS commentCount, " +
+            "p.viewCount AS viewCount " +
+            "FROM Post p " +
+            "JOIN p.user u ";
+
+    @Query(value = SELECT_POST_PREVIEW +
             "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP()")
-    Page<Post> findAll(Pageable pageable);
+            "AND p.isPublished = 1",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+                    "AND p.isPublished = 1")
+    Page<PostPreview> findAll(Pageable pageable);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
-            "LEFT JOIN PostComment pc ON pc.post = p.id " +
+    @Query(value = SELECT_POST_PREVIEW +
             "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
-            "GROUP BY p.id " +
-            "ORDER BY COUNT(pc) DESC")
-    Page<Post> findAllSortByCountCommentDesc(Pageable pageable);
+            "AND p.isPublished = 1 " +
+            "ORDER BY p.commentCount DESC, p.id ASC",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+                    "AND p.isPublished = 1")
+    Page<PostPreview> findAllSortByCountCommentDesc(Pageable pageable);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
-            "LEFT JOIN PostVote pv ON pv.post = p.id " +
+    @Query(value = SELECT_POST_PREVIEW +
             "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
-            "GROUP BY p.id " +
-            "ORDER BY COUNT(pv) DESC")
-    Page<Post> findAllSortByCountLikeDesc(Pageable pageable);
+            "AND p.isPublished = 1 " +
+            "ORDER BY p.voteCount DESC, p.id ASC",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+                    "AND p.isPublished = 1")
+    Page<PostPreview> findAllSortByCountLikeDesc(Pageable pageable);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
+    @Query(value = SELECT_POST_PREVIEW +
             "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
-            "AND UPPER(p.title) LIKE CONCAT('%',UPPER(:query),'%')")
-    Page<Post> findAllByQuery(Pageable pageable, @Param("query") String query);
+            "AND p.isPublished = 1 " +
+            "AND (p.time < :time OR (p.time = :time AND p.id < :id)) " +
+            "ORDER BY p.time DESC, p.id DESC")
+    List<PostPreview> findAllBeforeCursorSortByTimeDesc(
+            Pageable pageable,
+            @Param("time") LocalDateTime time,
+            @Param("id") int id);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
+    @Query(value = SELECT_POST_PREVIEW +
             "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
-            "AND DATE(p.time) = :date")
-    Page<Post> findAllByDate(Pageable pageable, @Param("date") Date date);
+            "AND p.isPublished = 1 " +
+            "AND (p.time > :time OR (p.time = :time AND p.id > :id)) " +
+            "ORDER BY p.time ASC, p.id ASC")
+    List<PostPreview> findAllAfterCursorSortByTimeAsc(
+            Pageable pageable,
+            @Param("time") LocalDateTime time,
+            @Param("id") int id);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
-            "LEFT JOIN p.tags t " +
+    @Query(value = SELECT_POST_PREVIEW +
             "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
-            "AND t.name = :tagName")
-    Page<Post> findAllByTag(Pageable pageable, @Param("tagName") String tagName);
+            "AND p.isPublished = 1 " +
+            "AND (p.commentCount < :count OR (p.commentCount = :count AND p.id > :id)) " +
+            "ORDER BY p.commentCount DESC, p.id ASC")
+    List<PostPreview> findAllAfterCursorSortByCountCommentDesc(
+            Pageable pageable,
+            @Param("count") int count,
+            @Param("id") int id);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
-            "WHERE p.isActive = 1 AND p.moderationStatus = :moderationStatus")
-    Page<Post> findAllByModerationStatus(Pageable pageable,
-                                         @Param("moderationStatus") ModerationStatusType moderationStatus);
+    @Query(value = SELECT_POST_PREVIEW +
+            "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND (p.voteCount < :count OR (p.voteCount = :count AND p.id > :id)) " +
+            "ORDER BY p.voteCount DESC, p.id ASC")
+    List<PostPreview> findAllAfterCursorSortByCountLikeDesc(
+            Pageable pageable,
+            @Param("count") int count,
+            @Param("id") int id);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
+    @Query(value = SELECT_POST_PREVIEW +
+            "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND UPPER(p.title) LIKE CONCAT('%',UPPER(:query),'%')",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+                    "AND p.isPublished = 1 " +
+                    "AND UPPER(p.title) LIKE CONCAT('%',UPPER(:query),'%')")
+    Page<PostPreview> findAllByQuery(Pageable pageable, @Param("query") String query);
+
+    @Query(value = SELECT_POST_PREVIEW +
+            "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND p.time >= :from AND p.time < :to",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+                    "AND p.isPublished = 1 " +
+                    "AND p.time >= :from AND p.time < :to")
+    Page<PostPreview> findAllByDate(Pageable pageable, @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
+
+    @Query(value = SELECT_POST_PREVIEW +
+            "JOIN p.tags t " +
+            "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND t.name = :tagName",
+            countQuery = "SELECT COUNT(p) FROM Post p JOIN p.tags t " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+                    "AND p.isPublished = 1 " +
+                    "AND t.name = :tagName")
+    Page<PostPreview> findAllByTag(Pageable pageable, @Param("tagName") String tagName);
+
+    @Query(value = SELECT_POST_PREVIEW +
+            "WHERE p.isActive = 1 AND p.moderationStatus = :moderationStatus",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = :moderationStatus")
+    Page<PostPreview> findAllByModerationStatus(
+            Pageable pageable,
+            @Param("moderationStatus") ModerationStatusType moderationStatus);
+
+    @Query(value = SELECT_POST_PREVIEW +
             "WHERE p.isActive = 1 AND p.moderationStatus = :moderationStatus " +
-            "AND p.moderatorID = :moderatorID")
-    Page<Post> findAllByModerationStatusAndModerationID(
+            "AND p.moderatorID = :moderatorID",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = :moderationStatus " +
+                    "AND p.moderatorID = :moderatorID")
+    Page<PostPreview> findAllByModerationStatusAndModerationID(
             Pageable pageable,
             @Param("moderationStatus") ModerationStatusType moderationStatus,
             @Param("moderatorID") int moderatorID);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
+    @Query(value = SELECT_POST_PREVIEW +
             "WHERE p.isActive = 1 AND p.moderationStatus = :moderationStatus " +
-            "AND u.id = :userID")
-    Page<Post> findAllByModerationStatusAndUserID(
+            "AND u.id = :userID",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 1 AND p.moderationStatus = :moderationStatus " +
+                    "AND p.user.id = :userID")
+    Page<PostPreview> findAllByModerationStatusAndUserID(
             Pageable pageable,
             @Param("moderationStatus") ModerationStatusType moderationStatus,
             @Param("userID") int userID);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
-            "WHERE p.isActive = 0 AND u.id = :userID")
-    Page<Post> findAllIsNotActiveByUserID(Pageable pageable, @Param("userID") int userID);
+    @Query(value = SELECT_POST_PREVIEW +
+            "WHERE p.isActive = 0 AND u.id = :userID",
+            countQuery = "SELECT COUNT(p) FROM Post p " +
+                    "WHERE p.isActive = 0 AND p.user.id = :userID")
+    Page<PostPreview> findAllIsNotActiveByUserID(Pageable pageable, @Param("userID") int userID);
+
+    @Query(value = SELECT_POST_PREVIEW +
+            "WHERE p.id IN :ids")
+    List<PostPreview> findAllPreviewsByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query(value = "SELECT p.id AS id, p.title AS title, p.text AS text FROM Post p " +
+            "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND p.id > :fromID " +
+            "ORDER BY p.id")
+    List<PostSearchSource> findAllSearchSources(Pageable pageable, @Param("fromID") int fromID);
+
+    @Query(value = "SELECT p.id AS id, p.title AS title, p.text AS text FROM Post p " +
+            "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND p.id = :id")
+    Optional<PostSearchSource> findSearchSourceById(@Param("id") int id);
+
+    @Query(value = "SELECT p.id AS id, p.title AS title FROM Post p " +
+            "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND p.id > :fromID " +
+            "ORDER BY p.id")
+    List<PostTitle> findAllTitles(Pageable pageable, @Param("fromID") int fromID);
+
+    @Query(value = "SELECT p.id AS postId, t.name AS name FROM Post p " +
+            "JOIN p.tags t " +
+            "WHERE p.id IN :ids")
+    List<PostTagName> findAllTagNamesByPostIds(@Param("ids") Collection<Integer> ids);
 
     @Query(value = "SELECT p FROM Post p " +
             "LEFT JOIN User u ON u.id = p.user " +
@@ -99,7 +202,7 @@ public interface PostRepository extends CrudRepository<Post, Integer> {
             "LEFT JOIN PostVote pv ON pv.post = p.id " +
             "LEFT JOIN p.tags " +
             "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
+            "AND p.isPublished = 1 " +
             "AND p.id = :id")
     Optional<Post> findPostByIDIsActiveAndAccepted(@Param("id") int id);
 
@@ -109,26 +212,17 @@ public interface PostRepository extends CrudRepository<Post, Integer> {
             "LEFT JOIN PostVote pv ON pv.post = p.id " +
             "LEFT JOIN p.tags " +
             "WHERE p.isActive = :isActive AND p.moderationStatus = :moderationStatus " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
+            "AND p.isPublished = 1 " +
             "AND p.id = :id")
     Optional<Post> findPostByID(@Param("id") int id,
                                 @Param("isActive") byte isActive,
                                 @Param("moderationStatus") ModerationStatusType moderationStatus);
 
-    @Query(value = "SELECT p FROM Post p " +
-            "LEFT JOIN User u ON u.id = p.user " +
-            "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
-            "AND YEAR(p.time) = :year " +
-            "ORDER BY p.time")
-    List<Post> findAllByYear(@Param("year") int year);
-
-    @Query(value = "SELECT YEAR(p.time) FROM Post p " +
+    @Query(value = "SELECT CAST(p.time AS date) AS day, COUNT(p.id) AS postCount FROM Post p " +
             "WHERE p.isActive = 1 AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
-            "GROUP BY YEAR(p.time) " +
-            "ORDER BY YEAR(p.time)")
-    String[] findAllYearValue();
+            "AND p.isPublished = 1 " +
+            "GROUP BY CAST(p.time AS date)")
+    List<PostDayCount> countAllActiveAndAcceptedByDay();
 
     @Query(value = "SELECT COUNT(*) FROM Post p " +
             "WHERE p.isActive = 1 " +
@@ -138,37 +232,112 @@ public interface PostRepository extends CrudRepository<Post, Integer> {
     @Query(value = "SELECT COUNT(*) FROM Post p " +
             "WHERE p.isActive = 1 " +
             "AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP()")
+            "AND p.isPublished = 1")
     Optional<Integer> countAllActiveAndAccepted();
 
     @Query(value = "SELECT COUNT(*) FROM Post p " +
             "WHERE p.isActive = 1 " +
             "AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
+            "AND p.isPublished = 1 " +
             "AND p.user = :user")
     Optional<Integer> countAllActiveAndAcceptedByUser(@Param("user") User user);
 
     @Query(value = "SELECT SUM(p.viewCount) FROM Post p " +
             "WHERE p.isActive = 1 " +
             "AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP()")
+            "AND p.isPublished = 1")
     Optional<Integer> countViewsAllPosts();
 
     @Query(value = "SELECT SUM(p.viewCount) FROM Post p " +
             "WHERE p.isActive = 1 " +
             "AND p.moderationStatus = 'ACCEPTED' " +
-            "AND p.time <= CURRENT_TIMESTAMP() " +
+            "AND p.isPublished = 1 " +
             "AND p.user = :user")
     Optional<Integer> countViewsAllPostsByUser(@Param("user") User user);
 
     @Query(nativeQuery = true, value = "SELECT time FROM posts " +
             "WHERE is_active = 1 AND moderation_status = 'ACCEPTED' " +
+            "AND is_published = 1 " +
             "ORDER BY time LIMIT 1")
     LocalDateTime getTimeFirstPost();
 
     @Query(nativeQuery = true, value = "SELECT time FROM posts " +
             "WHERE is_active = 1 AND moderation_status = 'ACCEPTED' " +
+            "AND is_published = 1 " +
             "AND user_id = :userId " +
             "ORDER BY time LIMIT 1")
     LocalDateTime getTimeFirstPostByUser(@Param("userId") int id);
+
+    @Query(value = "SELECT p.id AS id, p.user.id AS userId FROM Post p " +
+            "WHERE p.isActive = 1 " +
+            "AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND p.id IN :ids")
+    List<PostAuthor> findAllVisibleAuthorsByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query(value = "SELECT p.viewCount FROM Post p WHERE p.id = :id")
+    Optional<Integer> findViewCountById(@Param("id") int id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Post p " +
+            "SET p.likeCount = p.likeCount + :likeDelta, p.dislikeCount = p.dislikeCount + :dislikeDelta, " +
+            "p.voteCount = p.voteCount + :likeDelta + :dislikeDelta " +
+            "WHERE p.id = :id")
+    void updateVoteCounters(@Param("id") int id,
+                            @Param("likeDelta") int likeDelta,
+                            @Param("dislikeDelta") int dislikeDelta);
+
+    @Query(value = "SELECT p FROM Post p " +
+            "WHERE p.id > :fromID " +
+            "AND (p.announceLength IS NULL OR p.announceLength <> :announceLength) " +
+            "ORDER BY p.id")
+    List<Post> findAllWithOutdatedAnnounce(Pageable pageable,
+                                      @Param("fromID") int fromID,
+                                      @Param("announceLength") int announceLength);
+
+    @Query(value = "SELECT p FROM Post p " +
+            "WHERE p.id > :fromID " +
+            "AND (p.displayTextVersion IS NULL OR p.displayTextVersion <> :version) " +
+            "ORDER BY p.id")
+    List<Post> findAllWithOutdatedDisplayText(Pageable pageable,
+                                              @Param("fromID") int fromID,
+                                              @Param("version") String version);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Post p SET p.commentCount = p.commentCount + 1 WHERE p.id = :id")
+    void incrementCommentCount(@Param("id") int id);
+
+    @Query(value = "SELECT DISTINCT p FROM Post p " +
+            "LEFT JOIN FETCH p.tags " +
+            "WHERE p.isPublished = 0 AND p.time <= :time")
+    List<Post> findAllDueForPublication(@Param("time") LocalDateTime time);
+
+    @Query(value = "SELECT MIN(p.time) FROM Post p WHERE p.isPublished = 0")
+    Optional<LocalDateTime> findNextPublicationTime();
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Post p SET p.isPublished = 1 " +
+            "WHERE p.id = :id AND p.isPublished = 0 AND p.time <= :time")
+    int publish(@Param("id") int id, @Param("time") LocalDateTime time);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE Post p SET p.isPublished = 1 WHERE p.isPublished = 0 AND p.time <= :time")
+    int publishAllDue(@Param("time") LocalDateTime time);
+
+    @Query(value = "SELECT MAX(p.id) FROM Post p")
+    Optional<Integer> findMaxID();
+
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true, value = "UPDATE posts p SET " +
+            "p.like_count = (SELECT COUNT(*) FROM post_votes pv WHERE pv.post_id = p.id AND pv.value = 1), " +
+            "p.dislike_count = (SELECT COUNT(*) FROM post_votes pv WHERE pv.post_id = p.id AND pv.value = -1), " +
+            "p.vote_count = (SELECT COUNT(*) FROM post_votes pv WHERE pv.post_id = p.id), " +
+            "p.comment_count = (SELECT COUNT(*) FROM post_comments pc WHERE pc.post_id = p.id) " +
+            "WHERE p.id BETWEEN :fromID AND :toID")
+    int recountCounters(@Param("fromID") int fromID, @Param("toID") int toID);
 }
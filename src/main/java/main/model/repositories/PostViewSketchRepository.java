@@ -0,0 +1,29 @@
+package main.model.repositories;
+
+import main.model.PostViewSketch;
+import main.model.User;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PostViewSketchRepository extends CrudRepository<PostViewSketch, Integer> {
+
+    @Query(value = "SELECT SUM(s.uniqueCount) FROM PostViewSketch s, Post p " +
+            "WHERE p.id = s.postId " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1")
+    Optional<Integer> countUniqueViewsAllPosts();
+
+    @Query(value = "SELECT SUM(s.uniqueCount) FROM PostViewSketch s, Post p " +
+            "WHERE p.id = s.postId " +
+            "AND p.isActive = 1 " +
+            "AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "AND p.user = :user")
+    Optional<Integer> countUniqueViewsAllPostsByUser(@Param("user") User user);
+}
@@ -0,0 +1,44 @@
+package main.model.repositories;
+
+import main.model.StoredImage;
+import main.model.projections.ImageTextReferences;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StoredImageRepository extends CrudRepository<StoredImage, String> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE StoredImage i SET i.refCount = i.refCount + :delta WHERE i.path IN :paths")
+    void updateRefCount(@Param("paths") Collection<String> paths, @Param("delta") int delta);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE StoredImage i SET i.refCount = :refCount WHERE i.path = :path")
+    void setRefCount(@Param("path") String path, @Param("refCount") int refCount);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE StoredImage i SET i.time = :time WHERE i.hash = :hash")
+    void touch(@Param("hash") String hash, @Param("time") LocalDateTime time);
+
+    @Query(value = "SELECT i FROM StoredImage i WHERE i.refCount <= 0 AND i.time < :time")
+    List<StoredImage> findAllUnreferenced(Pageable pageable, @Param("time") LocalDateTime time);
+
+    @Query(nativeQuery = true, value = "SELECT i.hash AS hash, " +
+            "(SELECT COUNT(*) FROM posts p WHERE p.text LIKE CONCAT('%', i.path, '%')) + " +
+            "(SELECT COUNT(*) FROM post_comments c WHERE c.text LIKE CONCAT('%', i.path, '%')) AS refCount " +
+            "FROM stored_images i " +
+            "WHERE i.hash IN :hashes")
+    List<ImageTextReferences> countTextReferences(@Param("hashes") Collection<String> hashes);
+}
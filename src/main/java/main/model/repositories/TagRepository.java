@@ -1,12 +1,22 @@
 package main.model.repositories;
 
 import main.model.Tag;
+import main.model.projections.TagPostCount;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TagRepository extends CrudRepository<Tag, Integer> {
     Optional<Tag> findByName(String name);
+
+    @Query(value = "SELECT t.name AS name, COUNT(p.id) AS postCount FROM Tag t JOIN t.posts p " +
+            "WHERE p.isActive = 1 " +
+            "AND p.moderationStatus = 'ACCEPTED' " +
+            "AND p.isPublished = 1 " +
+            "GROUP BY t.name")
+    List<TagPostCount> countAllActiveAndAcceptedPostsByTag();
 }
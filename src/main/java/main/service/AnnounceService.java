@@ -0,0 +1,88 @@
+package main.service;
+
+import lombok.AllArgsConstructor;
+import main.config.BlogConfig;
+import main.model.DataMigration;
+import main.model.Post;
+import main.model.repositories.DataMigrationRepository;
+import main.model.repositories.PostRepository;
+import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@AllArgsConstructor
+public class AnnounceService {
+
+    private static final String MIGRATION_NAME_PREFIX = "post-announce-";
+
+    @Autowired
+    private final PostRepository postRepository;
+    @Autowired
+    private final DataMigrationRepository dataMigrationRepository;
+    @Autowired
+    private final BlogConfig config;
+
+    public void setAnnounceToPost(Post post) {
+        post.setAnnounce(getAnnounceFromText(post.getText()));
+        post.setAnnounceLength(config.getPostMaxLengthAnnounce());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recomputeOnStart() {
+        if (!config.isPostAnnounceRecomputeOnStart()) {
+            return;
+        }
+        String migrationName = MIGRATION_NAME_PREFIX + config.getPostMaxLengthAnnounce();
+        try {
+            if (dataMigrationRepository.existsById(migrationName)) {
+                return;
+            }
+            recomputeOutdatedAnnounces();
+            dataMigrationRepository.save(new DataMigration(migrationName, LocalDateTime.now()));
+        } catch (DataAccessException ex) {
+            BlogConfig.LOGGER.error("Ошибка пересчета анонсов постов: " + ex.getMessage());
+        }
+    }
+
+    public int recomputeOutdatedAnnounces() {
+        int announceLength = config.getPostMaxLengthAnnounce();
+        PageRequest batch = PageRequest.of(0, config.getPostAnnounceRecomputeBatchSize());
+        int updatedCount = 0;
+        int lastID = 0;
+        List<Post> posts = postRepository.findAllWithOutdatedAnnounce(batch, lastID, announceLength);
+        while (!posts.isEmpty()) {
+            for (Post post : posts) {
+                setAnnounceToPost(post);
+                lastID = post.getId();
+            }
+            postRepository.saveAll(posts);
+            updatedCount += posts.size();
+            posts = postRepository.findAllWithOutdatedAnnounce(batch, lastID, announceLength);
+        }
+        BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Пересчитаны анонсы у " + updatedCount + " постов");
+        return updatedCount;
+    }
+
+    private String getAnnounceFromText(String text) {
+        String modifyText = text;
+        if (text.length() > config.getPostMaxLengthAnnounce() * 100) {
+            modifyText = modifyText.substring(0, (config.getPostMaxLengthAnnounce() * 100) - 1);
+        }
+        modifyText = Jsoup.parse(modifyText).text();
+        int spaceIndex = modifyText.lastIndexOf(' ',
+                modifyText.length() < config.getPostMaxLengthAnnounce() ?
+                        (modifyText.length() - 1) : (config.getPostMaxLengthAnnounce() - 1));
+        if (spaceIndex >= 0) {
+            modifyText = modifyText.substring(0, spaceIndex);
+        }
+        return modifyText + "...";
+    }
+}
@@ -0,0 +1,115 @@
+package main.service;
+
+import main.api.response.CalendarResponse;
+import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.model.projections.PostDayCount;
+import main.model.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class CalendarService {
+
+    private final PostRepository postRepository;
+    private final BlogConfig config;
+    private final TreeMap<LocalDate, Integer> dayCounts = new TreeMap<>();
+    private final TreeMap<Integer, Integer> yearCounts = new TreeMap<>();
+
+    private boolean ready;
+
+    @Autowired
+    public CalendarService(PostRepository postRepository, BlogConfig config) {
+        this.postRepository = postRepository;
+        this.config = config;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void buildOnStart() {
+        if (!config.isCalendarIndexEnabled()) {
+            return;
+        }
+        dayCounts.clear();
+        yearCounts.clear();
+        loadDayCounts().forEach(this::addDay);
+        ready = true;
+        BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Календарь публикаций построен, дней: " +
+                dayCounts.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onPostEvent(PostEvent event) {
+        if (!ready) {
+            return;
+        }
+        if (event.isVisibleBefore()) {
+            addDay(event.getBefore().getTime().toLocalDate(), -1);
+        }
+        if (event.isVisibleAfter()) {
+            addDay(event.getAfter().getTime().toLocalDate(), 1);
+        }
+    }
+
+    public CalendarResponse getCalendar(String year) {
+        int requestYear = year.isEmpty() ? LocalDate.now().getYear() : Integer.parseInt(year);
+        LocalDate from = LocalDate.of(requestYear, 1, 1);
+        LocalDate to = from.plusYears(1);
+        Map<LocalDate, Integer> days;
+        String[] years;
+        synchronized (this) {
+            if (ready) {
+                days = new TreeMap<>(dayCounts.subMap(from, to));
+                years = yearCounts.keySet().stream().map(String::valueOf).toArray(String[]::new);
+            } else {
+                days = null;
+                years = null;
+            }
+        }
+        if (days == null) {
+            TreeMap<LocalDate, Integer> allDays = loadDayCounts();
+            days = allDays.subMap(from, to);
+            years = allDays.keySet().stream().map(LocalDate::getYear).distinct()
+                    .map(String::valueOf).toArray(String[]::new);
+        }
+
+        DateTimeFormatter formatDate = DateTimeFormatter.ofPattern(config.getTimeDateFormat());
+        Map<String, Integer> dateCount = new HashMap<>();
+        days.forEach((day, count) -> dateCount.put(day.format(formatDate), count));
+        return new CalendarResponse(years, dateCount);
+    }
+
+    private void addDay(LocalDate day, int delta) {
+        addCount(dayCounts, day, delta);
+        addCount(yearCounts, day.getYear(), delta);
+    }
+
+    private static <K> void addCount(Map<K, Integer> counts, K key, int delta) {
+        int count = counts.getOrDefault(key, 0) + delta;
+        if (count > 0) {
+            counts.put(key, count);
+        } else {
+            counts.remove(key);
+        }
+    }
+
+    private TreeMap<LocalDate, Integer> loadDayCounts() {
+        TreeMap<LocalDate, Integer> result = new TreeMap<>();
+        for (PostDayCount dayCount : postRepository.countAllActiveAndAcceptedByDay()) {
+            LocalDate day = Instant.ofEpochMilli(dayCount.getDay().getTime())
+                    .atZone(ZoneId.systemDefault()).toLocalDate();
+            result.merge(day, (int) dayCount.getPostCount(), Integer::sum);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package main.service;
+
+import com.github.cage.Cage;
+import com.github.cage.image.Painter;
+import main.config.BlogConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@Service
+public class CaptchaRenderer {
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final ThreadLocal<Cage> cages;
+    private final ThreadLocal<ImageWriter> writers;
+    private final ThreadLocal<ByteArrayOutputStream> buffers =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(INITIAL_BUFFER_SIZE));
+
+    @Autowired
+    public CaptchaRenderer(BlogConfig config) {
+        cages = ThreadLocal.withInitial(() -> new Cage(new Painter(config.getCaptchaWight(),
+                config.getCaptchaHeight(), null, null, null, null), null, null, null,
+                Cage.DEFAULT_COMPRESS_RATIO, null, null));
+        writers = ThreadLocal.withInitial(() ->
+                ImageIO.getImageWritersByFormatName(config.getCaptchaFormat()).next());
+    }
+
+    public String nextCode() {
+        return cages.get().getTokenGenerator().next();
+    }
+
+    public byte[] render(String code) {
+        BufferedImage image = cages.get().drawImage(code);
+        ByteArrayOutputStream buffer = buffers.get();
+        buffer.reset();
+        ImageWriter writer = writers.get();
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(buffer)) {
+            writer.setOutput(output);
+            writer.write(image);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Ошибка кодирования капчи", ex);
+        } finally {
+            writer.reset();
+            image.flush();
+        }
+        return buffer.toByteArray();
+    }
+}
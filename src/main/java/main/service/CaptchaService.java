@@ -1,92 +1,178 @@
 package main.service;
 
-import com.github.cage.Cage;
-import com.github.cage.GCage;
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
 import main.api.response.CaptchaResponse;
 import main.config.BlogConfig;
 import main.exception.ResultIllegalParameterException;
-import main.model.CaptchaCode;
-import main.model.repositories.CaptchaCodeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.awt.image.BufferedImage;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@AllArgsConstructor
 public class CaptchaService {
-    @Autowired
-    private final CaptchaCodeRepository captchaCodeRepository;
-    @Autowired
-    private final ImageService imageService;
-    @Autowired
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int HMAC_KEY_LENGTH = 32;
+    private static final int SIGNATURE_LENGTH = 16;
+    private static final int SECRET_CODE_LENGTH = Long.BYTES * 2 + SIGNATURE_LENGTH;
+
+    private final CaptchaRenderer captchaRenderer;
     private final BlogConfig config;
-    @Autowired
     private final TimeService timeService;
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec secretKey;
+    private final Map<Long, Long> usedNonces = new ConcurrentHashMap<>();
+    private final BlockingQueue<PooledCaptcha> pool;
+    private final ScheduledExecutorService poolExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final Timer refillTimer;
+    private final Counter poolMissCounter;
 
-    public CaptchaResponse generateCaptcha() {
-        deleteExpiredCaptcha();
-
-        Cage cage = new GCage();
-        String token = cage.getTokenGenerator().next();
-        BufferedImage scaledImage = imageService.resizeImage(cage.drawImage(token),
-                config.getCaptchaHeight(), config.getCaptchaWight());
-        String encodeImage = Base64.getEncoder().encodeToString(imageService
-                .imageToByte(scaledImage, config.getCaptchaFormat()));
-        String encodeImageURL = config.getCaptchaURL() + ", " + encodeImage;
-
-        CaptchaCode captchaCode = new CaptchaCode();
-        captchaCode.setCode(token);
-        captchaCode.setSecretCode(generateSecretCode());
-        captchaCode.setTime(LocalDateTime.now());
-
-        captchaCodeRepository.save(captchaCode);
-        return new CaptchaResponse(captchaCode.getSecretCode(), encodeImageURL);
+    @Autowired
+    public CaptchaService(CaptchaRenderer captchaRenderer, BlogConfig config, TimeService timeService,
+                          MeterRegistry meterRegistry) {
+        this.captchaRenderer = captchaRenderer;
+        this.config = config;
+        this.timeService = timeService;
+        pool = new ArrayBlockingQueue<>(Math.max(config.getCaptchaPoolSize(), 1));
+        Gauge.builder("captcha.pool.size", pool, BlockingQueue::size).register(meterRegistry);
+        refillTimer = Timer.builder("captcha.pool.refill").register(meterRegistry);
+        poolMissCounter = Counter.builder("captcha.pool.misses").register(meterRegistry);
+        byte[] key;
+        if (config.getCaptchaSecretKey() == null || config.getCaptchaSecretKey().isEmpty()) {
+            key = new byte[HMAC_KEY_LENGTH];
+            random.nextBytes(key);
+            BlogConfig.LOGGER.warn("Ключ подписи капчи не задан (переменная окружения CAPTCHA_SECRET_KEY), " +
+                    "используется случайный ключ: выданные капчи не пройдут проверку после перезапуска " +
+                    "и на других экземплярах приложения");
+        } else {
+            key = config.getCaptchaSecretKey().getBytes(StandardCharsets.UTF_8);
+        }
+        secretKey = new SecretKeySpec(key, HMAC_ALGORITHM);
     }
 
-    public void checkCaptchaCode(String secretCode, String code) {
-        if (captchaCodeRepository.count() == 0) {
-            return;
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPool() {
+        if (config.isCaptchaPoolEnabled()) {
+            poolExecutor.scheduleWithFixedDelay(this::refillPool, 0,
+                    config.getCaptchaPoolRefillInterval(), TimeUnit.MILLISECONDS);
         }
-        Iterable<CaptchaCode> captchaCodeIterable = captchaCodeRepository.findAll();
-        boolean isFound = false;
-        for (CaptchaCode captchaCode : captchaCodeIterable) {
-            if (captchaCode.getSecretCode().equals(secretCode)) {
-                if (captchaCode.getCode().equals(code)) {
-                    isFound = true;
-                }
+    }
+
+    @PreDestroy
+    public void stopPool() {
+        poolExecutor.shutdownNow();
+    }
+
+    public CaptchaResponse generateCaptcha() {
+        PooledCaptcha captcha = pool.poll();
+        if (captcha == null) {
+            if (config.isCaptchaPoolEnabled()) {
+                poolMissCounter.increment();
             }
+            captcha = renderCaptcha();
         }
-        if (!isFound) {
+        return new CaptchaResponse(createSecretCode(captcha.getCode()), captcha.getImage());
+    }
+
+    public String createSecretCode(String code) {
+        ByteBuffer secretCode = ByteBuffer.allocate(SECRET_CODE_LENGTH);
+        secretCode.putLong(timeService.getNowTimestamp() + config.getCaptchaTimeLive());
+        secretCode.putLong(random.nextLong());
+        secretCode.put(sign(secretCode.array(), Long.BYTES * 2, code));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(secretCode.array());
+    }
+
+    public void checkCaptchaCode(String secretCode, String code) {
+        if (secretCode == null || code == null || !isValidSecretCode(secretCode, code)) {
             throw new ResultIllegalParameterException(BlogConfig.ERROR_CAPTCHA_FRONTEND_NAME,
                     BlogConfig.ERROR_CAPTCHA_FRONTEND_MSG);
         }
     }
 
-    private void deleteExpiredCaptcha() {
-        Iterable<CaptchaCode> captchaCodeIterable = captchaCodeRepository.findAll();
-        LocalDateTime nowTimeMinusCaptchaTimeLive = LocalDateTime.ofInstant(
-                Instant.ofEpochSecond(timeService.getNowTimestamp() - config.getCaptchaTimeLive()),
-                ZoneId.systemDefault());
-        for (CaptchaCode captchaCode : captchaCodeIterable) {
-            if (captchaCode.getTime().isBefore(nowTimeMinusCaptchaTimeLive)) {
-                captchaCodeRepository.delete(captchaCode);
+    @Scheduled(fixedDelayString = "${config.captcha-replay-purge-interval}")
+    public void purgeUsedSecretCodes() {
+        long now = timeService.getNowTimestamp();
+        usedNonces.values().removeIf(expires -> expires < now);
+    }
+
+    private void refillPool() {
+        try {
+            for (int i = 0; i < config.getCaptchaPoolRefillBatch() && pool.remainingCapacity() > 0; i++) {
+                pool.offer(refillTimer.record(this::renderCaptcha));
             }
+        } catch (Exception ex) {
+            BlogConfig.LOGGER.error("Ошибка пополнения пула капчи: " + ex.getMessage());
+        }
+    }
+
+    private PooledCaptcha renderCaptcha() {
+        String token = captchaRenderer.nextCode();
+        String encodeImage = Base64.getEncoder().encodeToString(captchaRenderer.render(token));
+        return new PooledCaptcha(token, config.getCaptchaURL() + ", " + encodeImage);
+    }
+
+    private boolean isValidSecretCode(String secretCode, String code) {
+        byte[] decoded;
+        try {
+            decoded = Base64.getUrlDecoder().decode(secretCode);
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+        if (decoded.length != SECRET_CODE_LENGTH) {
+            return false;
         }
+        ByteBuffer buffer = ByteBuffer.wrap(decoded);
+        long expires = buffer.getLong();
+        long nonce = buffer.getLong();
+        if (expires < timeService.getNowTimestamp()) {
+            return false;
+        }
+        byte[] signature = Arrays.copyOfRange(decoded, Long.BYTES * 2, SECRET_CODE_LENGTH);
+        if (!MessageDigest.isEqual(signature, sign(decoded, Long.BYTES * 2, code))) {
+            return false;
+        }
+        return usedNonces.putIfAbsent(nonce, expires) == null;
     }
 
-    private String generateSecretCode() {
-        SecureRandom random = new SecureRandom();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < BlogConfig.LENGTH_CAPTCHA_SECRET_CODE; i++) {
-            sb.append(BlogConfig.SYMBOLS.charAt(random.nextInt(BlogConfig.SYMBOLS.length())));
+    private byte[] sign(byte[] header, int headerLength, String code) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            mac.update(header, 0, headerLength);
+            mac.update(code.getBytes(StandardCharsets.UTF_8));
+            return Arrays.copyOf(mac.doFinal(), SIGNATURE_LENGTH);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
         }
-        return sb.toString();
+    }
+
+    @Value
+    private static class PooledCaptcha {
+        String code;
+        String image;
     }
 }
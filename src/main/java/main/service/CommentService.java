@@ -1,18 +1,28 @@
 package main.service;
 
 import lombok.AllArgsConstructor;
+import main.api.dto.CommentPostDTO;
+import main.api.dto.UserDTO;
 import main.exception.DataNotFoundException;
 import main.model.PostComment;
+import main.model.projections.CommentNode;
+import main.model.projections.CommentPreview;
 import main.model.repositories.PostCommentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @AllArgsConstructor
 public class CommentService {
 
     @Autowired
     private final PostCommentRepository postCommentRepository;
+    @Autowired
+    private final TimeService timeService;
 
     public PostComment getCommentByID(int id) {
         return postCommentRepository.findById(id)
@@ -22,4 +32,49 @@ public class CommentService {
     public void saveComment(PostComment postComment) {
         postCommentRepository.save(postComment);
     }
+
+    public List<CommentPostDTO> getPostComments(int postId, int offset, int limit) {
+        List<CommentNode> nodes = postCommentRepository.findAllNodesByPostId(postId);
+        Set<Integer> nodeIds = nodes.stream().map(CommentNode::getId).collect(Collectors.toSet());
+        List<Integer> rootIds = new ArrayList<>();
+        Map<Integer, List<Integer>> childIds = new HashMap<>();
+        for (CommentNode node : nodes) {
+            if (node.getParentId() == null || !nodeIds.contains(node.getParentId())) {
+                rootIds.add(node.getId());
+            } else {
+                childIds.computeIfAbsent(node.getParentId(), id -> new ArrayList<>()).add(node.getId());
+            }
+        }
+        int fromIndex = Math.min(offset, rootIds.size());
+        int toIndex = Math.min(fromIndex + limit, rootIds.size());
+        List<Integer> pageIds = new ArrayList<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (Integer rootId : rootIds.subList(fromIndex, toIndex)) {
+            stack.push(rootId);
+            while (!stack.isEmpty()) {
+                Integer id = stack.pop();
+                pageIds.add(id);
+                List<Integer> children = childIds.getOrDefault(id, Collections.emptyList());
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+            }
+        }
+        if (pageIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, CommentPreview> comments = postCommentRepository.findAllPreviewsByIds(pageIds).stream()
+                .collect(Collectors.toMap(CommentPreview::getId, Function.identity()));
+        return pageIds.stream().map(comments::get).map(this::commentPreviewToDTO).collect(Collectors.toList());
+    }
+
+    private CommentPostDTO commentPreviewToDTO(CommentPreview comment) {
+        CommentPostDTO commentDTO = new CommentPostDTO();
+        commentDTO.setId(comment.getId());
+        commentDTO.setText(comment.getText());
+        commentDTO.setUser(new UserDTO(comment.getUserId(), comment.getUserName(), comment.getUserPhoto()));
+        commentDTO.setTimeStamp(timeService.getTimestampFromLocalDateTime(comment.getTime()));
+        commentDTO.setParentId(comment.getParentId() == null ? 0 : comment.getParentId());
+        return commentDTO;
+    }
 }
@@ -0,0 +1,56 @@
+package main.service;
+
+import lombok.AllArgsConstructor;
+import main.config.BlogConfig;
+import main.model.DataMigration;
+import main.model.repositories.DataMigrationRepository;
+import main.model.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+@AllArgsConstructor
+public class CounterBackfillService {
+
+    private static final String MIGRATION_NAME = "post-counters-backfill-votes";
+
+    @Autowired
+    private final PostRepository postRepository;
+    @Autowired
+    private final DataMigrationRepository dataMigrationRepository;
+    @Autowired
+    private final BlogConfig config;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStart() {
+        if (!config.isPostCountersBackfillOnStart()) {
+            return;
+        }
+        try {
+            if (dataMigrationRepository.existsById(MIGRATION_NAME)) {
+                return;
+            }
+            backfillPostCounters();
+            dataMigrationRepository.save(new DataMigration(MIGRATION_NAME, LocalDateTime.now()));
+        } catch (DataAccessException ex) {
+            BlogConfig.LOGGER.error("Ошибка пересчета счетчиков постов: " + ex.getMessage());
+        }
+    }
+
+    public int backfillPostCounters() {
+        int maxID = postRepository.findMaxID().orElse(0);
+        int batchSize = config.getPostCountersBackfillBatchSize();
+        int updatedCount = 0;
+        for (int fromID = 1; fromID <= maxID; fromID += batchSize) {
+            updatedCount += postRepository.recountCounters(fromID, fromID + batchSize - 1);
+        }
+        BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Пересчитаны счетчики голосов " +
+                "и комментариев у " + updatedCount + " постов");
+        return updatedCount;
+    }
+}
@@ -0,0 +1,34 @@
+package main.service;
+
+import main.api.dto.CursorDTO;
+import main.exception.IllegalParameterException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Service
+public class CursorService {
+
+    private static final String MSG_EXCEPTION_INVALID_CURSOR_VALUE = "Invalid value of the 'cursor' " +
+            "argument in the '/post' request";
+    private static final String SEPARATOR = ":";
+
+    public String encode(long key, int id) {
+        String value = key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public CursorDTO decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = value.split(SEPARATOR);
+            if (parts.length != 2) {
+                throw new IllegalParameterException(MSG_EXCEPTION_INVALID_CURSOR_VALUE);
+            }
+            return new CursorDTO(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalParameterException(MSG_EXCEPTION_INVALID_CURSOR_VALUE);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package main.service;
+
+import lombok.AllArgsConstructor;
+import main.config.BlogConfig;
+import main.model.DataMigration;
+import main.model.Post;
+import main.model.repositories.DataMigrationRepository;
+import main.model.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@AllArgsConstructor
+public class DisplayTextService {
+
+    private static final String MIGRATION_NAME_PREFIX = "post-display-text-";
+
+    @Autowired
+    private final PostRepository postRepository;
+    @Autowired
+    private final DataMigrationRepository dataMigrationRepository;
+    @Autowired
+    private final ImageDerivativeService imageDerivativeService;
+    @Autowired
+    private final BlogConfig config;
+
+    public void setDisplayTextToPost(Post post) {
+        String displayText = imageDerivativeService.addSourceSets(post.getText());
+        post.setDisplayText(post.getText().equals(displayText) ? null : displayText);
+        post.setDisplayTextVersion(imageDerivativeService.getSourceSetVersion());
+    }
+
+    public String getDisplayText(Post post) {
+        return post.getDisplayText() == null ? post.getText() : post.getDisplayText();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recomputeOnStart() {
+        if (!config.isPostDisplayTextRecomputeOnStart()) {
+            return;
+        }
+        String migrationName = MIGRATION_NAME_PREFIX + imageDerivativeService.getSourceSetVersion();
+        try {
+            if (dataMigrationRepository.existsById(migrationName)) {
+                return;
+            }
+            recomputeOutdatedDisplayTexts();
+            dataMigrationRepository.save(new DataMigration(migrationName, LocalDateTime.now()));
+        } catch (DataAccessException ex) {
+            BlogConfig.LOGGER.error("Ошибка пересчета текстов постов: " + ex.getMessage());
+        }
+    }
+
+    public int recomputeOutdatedDisplayTexts() {
+        String version = imageDerivativeService.getSourceSetVersion();
+        PageRequest batch = PageRequest.of(0, config.getPostDisplayTextRecomputeBatchSize());
+        int updatedCount = 0;
+        int lastID = 0;
+        List<Post> posts = postRepository.findAllWithOutdatedDisplayText(batch, lastID, version);
+        while (!posts.isEmpty()) {
+            for (Post post : posts) {
+                setDisplayTextToPost(post);
+                lastID = post.getId();
+            }
+            postRepository.saveAll(posts);
+            updatedCount += posts.size();
+            posts = postRepository.findAllWithOutdatedDisplayText(batch, lastID, version);
+        }
+        BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Пересчитаны тексты для вывода у " + updatedCount +
+                " постов");
+        return updatedCount;
+    }
+}
@@ -0,0 +1,103 @@
+package main.service;
+
+import java.nio.charset.StandardCharsets;
+
+final class HyperLogLog {
+
+    private static final int PRECISION = 12;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final int REGISTER_BITS = 6;
+    private static final int REGISTER_MASK = (1 << REGISTER_BITS) - 1;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    static final int SERIALIZED_SIZE = REGISTER_COUNT * REGISTER_BITS / 8;
+
+    private final byte[] registers;
+
+    HyperLogLog() {
+        registers = new byte[REGISTER_COUNT];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    boolean offer(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (rank <= registers[index]) {
+            return false;
+        }
+        registers[index] = rank;
+        return true;
+    }
+
+    boolean merge(HyperLogLog other) {
+        boolean changed = false;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    int estimate() {
+        double sum = 0;
+        int zeroCount = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroCount++;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeroCount > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeroCount);
+        }
+        return (int) Math.round(estimate);
+    }
+
+    byte[] toBytes() {
+        byte[] bytes = new byte[SERIALIZED_SIZE];
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            int bit = i * REGISTER_BITS;
+            int value = registers[i] << (bit % 8);
+            bytes[bit / 8] |= (byte) value;
+            if (bit % 8 > 8 - REGISTER_BITS) {
+                bytes[bit / 8 + 1] |= (byte) (value >>> 8);
+            }
+        }
+        return bytes;
+    }
+
+    static HyperLogLog fromBytes(byte[] bytes) {
+        byte[] registers = new byte[REGISTER_COUNT];
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            int bit = i * REGISTER_BITS;
+            int value = (bytes[bit / 8] & 0xff) >>> (bit % 8);
+            if (bit % 8 > 8 - REGISTER_BITS) {
+                value |= (bytes[bit / 8 + 1] & 0xff) << (8 - bit % 8);
+            }
+            registers[i] = (byte) (value & REGISTER_MASK);
+        }
+        return new HyperLogLog(registers);
+    }
+}
@@ -0,0 +1,210 @@
+package main.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import main.config.BlogConfig;
+import org.imgscalr.Scalr;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+public class ImageDerivativeService {
+
+    private final BlogConfig config;
+    private final ThreadPoolExecutor derivativeExecutor;
+    private final Set<Path> pendingImages = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ImageDerivativeService(BlogConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        int threads = Math.max(config.getImageDerivativeThreads(), 1);
+        derivativeExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(config.getImageDerivativeQueueSize(), 1)));
+        Gauge.builder("image.derivatives.queue", derivativeExecutor, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    public void generateDerivatives(String imagePath) {
+        if (!config.isImageDerivativesEnabled() || config.getImageDerivativeWidths().isEmpty()) {
+            return;
+        }
+        Path original;
+        try {
+            original = toFilePath(imagePath);
+        } catch (IllegalArgumentException ex) {
+            return;
+        }
+        if (!pendingImages.add(original)) {
+            return;
+        }
+        try {
+            derivativeExecutor.execute(() -> {
+                try {
+                    createDerivatives(original);
+                } catch (IOException | RuntimeException ex) {
+                    BlogConfig.LOGGER.error("Ошибка создания уменьшенных копий изображения {}: {}",
+                            imagePath, ex.getMessage());
+                } finally {
+                    pendingImages.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            pendingImages.remove(original);
+            BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Очередь создания уменьшенных копий заполнена, " +
+                    "копии изображения {} будут созданы при первом запросе", imagePath);
+        }
+    }
+
+    public String addSourceSets(String html) {
+        if (!config.isImageDerivativesEnabled() || config.getImageDerivativeWidths().isEmpty() ||
+                html == null || !html.contains("<img")) {
+            return html;
+        }
+        String imageFolder = "/" + config.getImagePath() + "/";
+        Document document = Jsoup.parseBodyFragment(html);
+        document.outputSettings().prettyPrint(false);
+        boolean changed = false;
+        for (Element image : document.select("img[src]")) {
+            String src = image.attr("src");
+            if (!src.startsWith(imageFolder) || src.contains("?")) {
+                continue;
+            }
+            image.attr("srcset", config.getImageDerivativeWidths().entrySet().stream()
+                    .sorted(Map.Entry.comparingByValue())
+                    .map(entry -> src + "?size=" + entry.getKey() + " " + entry.getValue() + "w")
+                    .collect(Collectors.joining(", ")));
+            image.attr("sizes", "(max-width: " + config.getImageDerivativeDisplayWidth() + "px) 100vw, " +
+                    config.getImageDerivativeDisplayWidth() + "px");
+            changed = true;
+        }
+        return changed ? document.body().html() : html;
+    }
+
+    public String getSourceSetVersion() {
+        String sourceSets = "disabled";
+        if (config.isImageDerivativesEnabled() && !config.getImageDerivativeWidths().isEmpty()) {
+            sourceSets = config.getImagePath() + ";" + config.getImageDerivativeDisplayWidth() + ";" +
+                    config.getImageDerivativeWidths().entrySet().stream()
+                            .sorted(Map.Entry.comparingByValue())
+                            .map(entry -> entry.getKey() + "=" + entry.getValue())
+                            .collect(Collectors.joining(","));
+        }
+        return Integer.toHexString(sourceSets.hashCode());
+    }
+
+    public Optional<Path> findDerivative(String imagePath, String size) {
+        if (!config.isImageDerivativesEnabled() || !config.getImageDerivativeWidths().containsKey(size)) {
+            return Optional.empty();
+        }
+        try {
+            Path derivative = getDerivativePath(toFilePath(imagePath), size);
+            return Files.isRegularFile(derivative) ? Optional.of(derivative) : Optional.empty();
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+    }
+
+    public void removeDerivatives(String imagePath) {
+        Path original = toFilePath(imagePath);
+        for (String size : config.getImageDerivativeWidths().keySet()) {
+            try {
+                Files.deleteIfExists(getDerivativePath(original, size));
+            } catch (IOException ex) {
+                BlogConfig.LOGGER.info(BlogConfig.MARKER_UNSUCCESSFUL_REQUEST,
+                        "Ошибка удаления файла: {}", ex.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        derivativeExecutor.shutdownNow();
+    }
+
+    private void createDerivatives(Path original) throws IOException {
+        BufferedImage image = ImageIO.read(original.toFile());
+        if (image == null) {
+            throw new IOException("Ошибка чения файла");
+        }
+        String format = getFileFormat(original);
+        try {
+            for (Map.Entry<String, Integer> entry : config.getImageDerivativeWidths().entrySet()) {
+                Path derivative = getDerivativePath(original, entry.getKey());
+                if (Files.exists(derivative)) {
+                    continue;
+                }
+                Path tempFile = Files.createTempFile(original.getParent(), entry.getKey() + "-", ".tmp");
+                try {
+                    if (image.getWidth() <= entry.getValue()) {
+                        Files.copy(original, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                    } else {
+                        BufferedImage resizeImage = Scalr.resize(image, config.getImageDerivativeQuality(),
+                                Scalr.Mode.FIT_TO_WIDTH, entry.getValue());
+                        try {
+                            ImageIO.write(resizeImage, format, tempFile.toFile());
+                        } finally {
+                            resizeImage.flush();
+                        }
+                    }
+                    Files.move(tempFile, derivative, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
+            }
+        } finally {
+            image.flush();
+        }
+    }
+
+    private Path toFilePath(String imagePath) {
+        String path = imagePath;
+        String imageFolder = File.separator + config.getImagePath() + File.separator;
+        if (path.startsWith(imageFolder)) {
+            path = path.substring(imageFolder.length());
+        } else if (path.startsWith(File.separator)) {
+            path = path.substring(1);
+        }
+        Path root = Paths.get(config.getImagePath()).normalize();
+        Path filePath = root.resolve(path).normalize();
+        if (!filePath.startsWith(root)) {
+            throw new IllegalArgumentException(imagePath);
+        }
+        return filePath;
+    }
+
+    private Path getDerivativePath(Path original, String size) {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return original.resolveSibling(fileName + "-" + size);
+        }
+        return original.resolveSibling(fileName.substring(0, dot) + "-" + size + fileName.substring(dot));
+    }
+
+    private String getFileFormat(Path original) {
+        String fileName = original.getFileName().toString();
+        return fileName.substring(fileName.lastIndexOf('.') + 1);
+    }
+}
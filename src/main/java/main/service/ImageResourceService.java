@@ -0,0 +1,237 @@
+package main.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import main.config.BlogConfig;
+import org.apache.catalina.Globals;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+public class ImageResourceService {
+
+    private static final String SIZE_PARAMETER_NAME = "size";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int ETAG_HASH_LENGTH = 32;
+    private static final int ENTRY_BASE_WEIGHT = 256;
+    private static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_CONTROL_REVALIDATE = "no-cache";
+
+    private final BlogConfig config;
+    private final ImageDerivativeService imageDerivativeService;
+    private final Path imageRoot;
+    private final Pattern contentAddressedName;
+    private final Cache<Path, ImageFile> cache;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Autowired
+    public ImageResourceService(BlogConfig config, ImageDerivativeService imageDerivativeService,
+                                MeterRegistry meterRegistry) {
+        this.config = config;
+        this.imageDerivativeService = imageDerivativeService;
+        imageRoot = Paths.get(config.getImagePath()).toAbsolutePath().normalize();
+        contentAddressedName = Pattern.compile(Pattern.quote(config.getImagePrefixFileName()) +
+                "-([0-9a-f]{64})(-[A-Za-z0-9_]+)?\\.[A-Za-z0-9]+");
+        cache = Caffeine.newBuilder()
+                .maximumWeight(config.getImageCacheMaxWeight())
+                .weigher((Path path, ImageFile file) -> weigh(file))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "images");
+    }
+
+    public void sendImage(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String requestPath = urlPathHelper.getPathWithinApplication(request);
+        String imageFolder = "/" + config.getImagePath() + "/";
+        if (!requestPath.startsWith(imageFolder) || requestPath.endsWith(TEMP_FILE_SUFFIX)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String relativePath = requestPath.substring(imageFolder.length());
+        Path path = imageRoot.resolve(relativePath).normalize();
+        if (!path.startsWith(imageRoot)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        boolean derivativePending = false;
+        String size = request.getParameter(SIZE_PARAMETER_NAME);
+        if (size != null) {
+            Optional<Path> derivative = imageDerivativeService.findDerivative(relativePath, size);
+            derivativePending = derivative.isEmpty();
+            if (derivativePending && config.getImageDerivativeWidths().containsKey(size) && isOriginal(path)) {
+                imageDerivativeService.generateDerivatives(relativePath);
+            }
+            path = derivative.orElse(path);
+        }
+
+        ImageFile file = getImageFile(path);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                file.isImmutable() && !derivativePending ? CACHE_CONTROL_IMMUTABLE : CACHE_CONTROL_REVALIDATE);
+        if (new ServletWebRequest(request, response).checkNotModified(file.getEtag(), file.getLastModified())) {
+            return;
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(path.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = file.getSize() - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && isIfRangeSatisfied(request, file)) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(file.getSize());
+                    end = ranges.get(0).getRangeEnd(file.getSize());
+                    if (start >= file.getSize() || start > end) {
+                        throw new IllegalArgumentException(rangeHeader);
+                    }
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE,
+                            "bytes " + start + "-" + end + "/" + file.getSize());
+                }
+            } catch (IllegalArgumentException ex) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.getSize());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length <= 0) {
+            return;
+        }
+        writeContent(request, response, file, start, length);
+    }
+
+    private void writeContent(HttpServletRequest request, HttpServletResponse response, ImageFile file,
+                              long start, long length) throws IOException {
+        if (file.getContent() != null) {
+            response.getOutputStream().write(file.getContent(), (int) start, (int) length);
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR))) {
+            request.setAttribute(Globals.SENDFILE_FILENAME_ATTR, file.getPath().toString());
+            request.setAttribute(Globals.SENDFILE_FILE_START_ATTR, start);
+            request.setAttribute(Globals.SENDFILE_FILE_END_ATTR, start + length);
+            return;
+        }
+        OutputStream outputStream = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long count = channel.transferTo(position, remaining, target);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+                remaining -= count;
+            }
+        }
+    }
+
+    private boolean isOriginal(Path path) {
+        Matcher matcher = contentAddressedName.matcher(path.getFileName().toString());
+        return matcher.matches() && matcher.group(2) == null && Files.isRegularFile(path);
+    }
+
+    private ImageFile getImageFile(Path path) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        ImageFile file = cache.getIfPresent(path);
+        if (file != null && file.getSize() == attributes.size() && file.getLastModified() == lastModified) {
+            return file;
+        }
+
+        byte[] content = attributes.size() <= config.getImageCacheMaxFileSize() ? Files.readAllBytes(path) : null;
+        Matcher matcher = contentAddressedName.matcher(path.getFileName().toString());
+        boolean immutable = matcher.matches();
+        String etag;
+        if (immutable) {
+            String suffix = matcher.group(2) == null ? "" : matcher.group(2);
+            etag = "\"" + matcher.group(1).substring(0, ETAG_HASH_LENGTH) + suffix + "\"";
+        } else if (content != null) {
+            etag = "\"" + hash(content) + "\"";
+        } else {
+            etag = "W/\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(lastModified) + "\"";
+        }
+        file = new ImageFile(path, attributes.size(), lastModified, etag, immutable, content);
+        cache.put(path, file);
+        return file;
+    }
+
+    private boolean isIfRangeSatisfied(HttpServletRequest request, ImageFile file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || (!file.getEtag().startsWith("W/") && ifRange.equals(file.getEtag()));
+    }
+
+    private String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance(HASH_ALGORITHM).digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private int weigh(ImageFile file) {
+        return ENTRY_BASE_WEIGHT + (file.getContent() == null ? 0 : file.getContent().length);
+    }
+
+    @Value
+    private static class ImageFile {
+        Path path;
+        long size;
+        long lastModified;
+        String etag;
+        boolean immutable;
+        byte[] content;
+    }
+}
@@ -1,126 +1,280 @@
 package main.service;
 
-import lombok.AllArgsConstructor;
 import main.config.BlogConfig;
 import main.exception.ResultIllegalParameterException;
+import main.model.StoredImage;
+import main.model.projections.ImageTextReferences;
+import main.model.repositories.StoredImageRepository;
 import org.imgscalr.Scalr;
+import org.jsoup.Jsoup;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.security.SecureRandom;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
-@AllArgsConstructor
 public class ImageService {
 
     private static final double ratioBytesToMb = 0.00000095367432;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int CLEANUP_BATCH_SIZE = 100;
+    private static final int HASH_LOCK_COUNT = 64;
+    private static final int IMAGE_SIGNATURE_LENGTH = 8;
+    private static final int AVATAR_DECODE_OVERSAMPLING = 2;
+    private static final Map<String, byte[]> IMAGE_SIGNATURES = Map.of(
+            "png", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'},
+            "jpg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+            "jpeg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+            "gif", new byte[]{'G', 'I', 'F', '8'},
+            "bmp", new byte[]{'B', 'M'});
+    private final BlogConfig config;
+    private final StoredImageRepository storedImageRepository;
+    private final ImageDerivativeService imageDerivativeService;
+    private final Semaphore decodePermits;
+    private final Object[] hashLocks = new Object[HASH_LOCK_COUNT];
+
     @Autowired
-    private BlogConfig config;
+    public ImageService(BlogConfig config, StoredImageRepository storedImageRepository,
+                        ImageDerivativeService imageDerivativeService) {
+        this.config = config;
+        this.storedImageRepository = storedImageRepository;
+        this.imageDerivativeService = imageDerivativeService;
+        decodePermits = new Semaphore(Math.max(config.getImageDecodeMaxConcurrent(), 1));
+        Arrays.setAll(hashLocks, i -> new Object());
+    }
 
-    public BufferedImage resizeImage(BufferedImage image, int newHeight, int newWidth) {
-        BufferedImage outputImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-        Image resultingImage = image.getScaledInstance(newWidth, newHeight, Image.SCALE_DEFAULT);
+    public String loadImage(InputStream inputStream) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(inputStream);
+        String fileFormat = detectImageFormat(bufferedInput, BlogConfig.ERROR_IMAGE_FRONTEND_NAME);
+        Path uploadFolder = Paths.get(config.getImagePath());
+        Files.createDirectories(uploadFolder);
+        Path tempFile = Files.createTempFile(uploadFolder, config.getImagePrefixFileName() + "-", ".tmp");
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            long size;
+            try (InputStream input = new DigestInputStream(bufferedInput, digest)) {
+                size = Files.copy(input, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String imagePath = storeImage(tempFile, toHex(digest.digest()), size, fileFormat);
+            imageDerivativeService.generateDerivatives(imagePath);
+            return imagePath;
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
 
-        outputImage.getGraphics().drawImage(resultingImage, 0, 0, null);
+    public void updateImageReferences(String oldText, String newText) {
+        Set<String> oldPaths = findImagePaths(oldText);
+        Set<String> newPaths = findImagePaths(newText);
+        Set<String> addedPaths = new HashSet<>(newPaths);
+        addedPaths.removeAll(oldPaths);
+        Set<String> removedPaths = new HashSet<>(oldPaths);
+        removedPaths.removeAll(newPaths);
+        if (!addedPaths.isEmpty()) {
+            storedImageRepository.updateRefCount(addedPaths, 1);
+        }
+        if (!removedPaths.isEmpty()) {
+            storedImageRepository.updateRefCount(removedPaths, -1);
+        }
+    }
 
-        return outputImage;
+    @Scheduled(fixedDelayString = "${config.image-cleanup-interval}")
+    public void removeUnreferencedImages() {
+        LocalDateTime threshold = LocalDateTime.now().minusSeconds(config.getImageUnreferencedTimeLive());
+        List<StoredImage> images = storedImageRepository.findAllUnreferenced(
+                PageRequest.of(0, CLEANUP_BATCH_SIZE), threshold);
+        while (!images.isEmpty()) {
+            Map<String, Long> textReferences = storedImageRepository.countTextReferences(images.stream()
+                    .map(StoredImage::getHash).collect(Collectors.toList())).stream()
+                    .collect(Collectors.toMap(ImageTextReferences::getHash, ImageTextReferences::getRefCount));
+            images.forEach(image -> removeUnreferencedImage(image.getHash(), threshold,
+                    textReferences.getOrDefault(image.getHash(), 0L)));
+            images = storedImageRepository.findAllUnreferenced(PageRequest.of(0, CLEANUP_BATCH_SIZE), threshold);
+        }
     }
 
-    public byte[] imageToByte(BufferedImage image, String imageFormat) {
-        byte[] result = new byte[0];
-        try {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            ImageIO.write(image, imageFormat, byteArrayOutputStream);
-            result = byteArrayOutputStream.toByteArray();
-        } catch (IOException ex) {
-            BlogConfig.LOGGER.error(ex.getMessage());
-            ex.printStackTrace();
+    private String storeImage(Path tempFile, String hash, long size, String format) throws IOException {
+        synchronized (lockFor(hash)) {
+            Optional<StoredImage> storedImage = storedImageRepository.findById(hash);
+            if (storedImage.isPresent() && Files.exists(Paths.get(storedImage.get().getPath().substring(1)))) {
+                storedImageRepository.touch(hash, LocalDateTime.now());
+                return storedImage.get().getPath();
+            }
+            Path folderPathDestination = Paths.get(generateFilePath(hash));
+            Files.createDirectories(folderPathDestination);
+            Path resultFilePath = folderPathDestination.resolve(config.getImagePrefixFileName() + "-" + hash +
+                    "." + format);
+            Files.move(tempFile, resultFilePath, StandardCopyOption.REPLACE_EXISTING);
+
+            StoredImage image = storedImage.orElseGet(StoredImage::new);
+            image.setHash(hash);
+            image.setPath(File.separator + resultFilePath);
+            image.setSize(size);
+            image.setTime(LocalDateTime.now());
+            storedImageRepository.save(image);
+            return image.getPath();
         }
-        return result;
     }
 
-    public String loadImage(MultipartFile file) throws IOException {
-        if (file.isEmpty()) {
-            throw new ResultIllegalParameterException(BlogConfig.ERROR_IMAGE_FRONTEND_NAME,
-                    BlogConfig.ERROR_FAILED_UPLOAD_IMAGE_FRONTEND_MSG);
+    private void removeUnreferencedImage(String hash, LocalDateTime threshold, long textReferences) {
+        synchronized (lockFor(hash)) {
+            storedImageRepository.findById(hash)
+                    .filter(image -> image.getRefCount() <= 0 && image.getTime().isBefore(threshold))
+                    .ifPresent(image -> {
+                        if (textReferences > 0) {
+                            BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Восстановлен счетчик ссылок " +
+                                    "на изображение {}: {}", image.getPath(), textReferences);
+                            storedImageRepository.setRefCount(image.getPath(), (int) textReferences);
+                            return;
+                        }
+                        removeFile(image.getPath());
+                        imageDerivativeService.removeDerivatives(image.getPath());
+                        storedImageRepository.delete(image);
+                    });
+        }
+    }
+
+    private Object lockFor(String hash) {
+        return hashLocks[Math.floorMod(hash.hashCode(), HASH_LOCK_COUNT)];
+    }
+
+    private Set<String> findImagePaths(String html) {
+        if (html == null || html.isEmpty()) {
+            return new HashSet<>();
+        }
+        String uploadPrefix = File.separator + config.getImagePath() + File.separator;
+        return Jsoup.parse(html).select("img[src]").stream()
+                .map(element -> element.attr("src"))
+                .filter(src -> src.contains(uploadPrefix))
+                .map(src -> src.substring(src.indexOf(uploadPrefix)))
+                .collect(Collectors.toSet());
+    }
+
+    private String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
         }
-        checkFileSize(file);
-        String fileFormat = checkImageFormat(file);
-        String folderPathDestination = generateFilePath(config.getImageCountSubFolders(),
-                config.getImageCountCharInFolderName());
-        if (Files.notExists(Paths.get(folderPathDestination))) {
-            new File(folderPathDestination).mkdirs();
+        return sb.toString();
+    }
+
+    public long getImageMaxSizeBytes() {
+        return (long) (config.getImageMaxSize() / ratioBytesToMb);
+    }
+
+    public BufferedImage readAvatarImage(InputStream inputStream) throws IOException {
+        return readImage(inputStream, BlogConfig.ERROR_PHOTO_FRONTEND_NAME, config.getImageAvatarSize());
+    }
+
+    public BufferedImage readImage(InputStream inputStream, String typeErrorMsg, int targetSize) throws IOException {
+        byte[] data = inputStream.readAllBytes();
+        detectImageFormat(data, data.length, typeErrorMsg);
+        acquireDecodePermit(typeErrorMsg);
+        try (ImageInputStream imageInput = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                throw new IOException("Ошибка чения файла");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int largestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, largestSide / (targetSize * AVATAR_DECODE_OVERSAMPLING));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            decodePermits.release();
         }
-        String fileNameDestination = generateFileName(config.getImageCountCharInFileName(), fileFormat);
-        Path resultFilePath = Paths.get(folderPathDestination, fileNameDestination);
-        Files.copy(file.getInputStream(), resultFilePath, StandardCopyOption.REPLACE_EXISTING);
-        return File.separator + resultFilePath;
     }
 
-    private void checkFileSize(MultipartFile file) {
-        checkFileSize(file, BlogConfig.ERROR_IMAGE_FRONTEND_NAME, BlogConfig.ERROR_FAILED_SIZE_IMAGE_FRONTEND_MSG);
+    private void acquireDecodePermit(String typeErrorMsg) throws IOException {
+        try {
+            if (!decodePermits.tryAcquire(config.getImageDecodeWaitTimeout(), TimeUnit.MILLISECONDS)) {
+                BlogConfig.LOGGER.info(BlogConfig.MARKER_UNSUCCESSFUL_REQUEST,
+                        "Превышено время ожидания декодирования изображения");
+                throw new ResultIllegalParameterException(typeErrorMsg,
+                        BlogConfig.ERROR_FAILED_UPLOAD_IMAGE_FRONTEND_MSG);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex.getMessage(), ex);
+        }
     }
 
-    private void checkFileSize(MultipartFile file, String typeErrorMsg, String errorMsg) {
-        double currentFileSize = file.getSize() * ratioBytesToMb;
-        if (currentFileSize > config.getImageMaxSize()) {
-            throw new ResultIllegalParameterException(typeErrorMsg, errorMsg);
+    private String detectImageFormat(BufferedInputStream input, String typeErrorMsg) throws IOException {
+        byte[] header = new byte[IMAGE_SIGNATURE_LENGTH];
+        input.mark(IMAGE_SIGNATURE_LENGTH);
+        int length = 0;
+        int count;
+        while (length < header.length && (count = input.read(header, length, header.length - length)) > 0) {
+            length += count;
         }
+        input.reset();
+        return detectImageFormat(header, length, typeErrorMsg);
     }
 
-    private String checkImageFormat(MultipartFile file) {
-        String fileName = file.getOriginalFilename();
-        assert fileName != null;
-        if (fileName.isEmpty()) {
-            throw new ResultIllegalParameterException(BlogConfig.ERROR_IMAGE_FRONTEND_NAME,
-                    BlogConfig.ERROR_MISSING_FORMAT_IMAGE_FRONTEND_MSG);
+    private String detectImageFormat(byte[] header, int length, String typeErrorMsg) {
+        if (length == 0) {
+            throw new ResultIllegalParameterException(typeErrorMsg,
+                    BlogConfig.ERROR_FAILED_UPLOAD_IMAGE_FRONTEND_MSG);
         }
-        String[] partsFileName = fileName.split("\\.");
-        String fileFormat = partsFileName[partsFileName.length - 1];
         for (String format : config.getImageFormat()) {
-            if (fileFormat.equals(format)) {
+            byte[] signature = IMAGE_SIGNATURES.get(format.toLowerCase());
+            if (signature != null && length >= signature.length &&
+                    Arrays.equals(header, 0, signature.length, signature, 0, signature.length)) {
                 return format;
             }
         }
-        throw new ResultIllegalParameterException(BlogConfig.ERROR_IMAGE_FRONTEND_NAME,
-                BlogConfig.ERROR_FAILED_FORMAT_IMAGE_FRONTEND_MSG);
+        throw new ResultIllegalParameterException(typeErrorMsg, BlogConfig.ERROR_FAILED_FORMAT_IMAGE_FRONTEND_MSG);
     }
 
-    private String generateFilePath(int countSubFolders, int countCharInFolderName) {
-        SecureRandom random = new SecureRandom();
+    private String generateFilePath(String hash) {
         StringBuilder sb = new StringBuilder();
         sb.append(config.getImagePath()).append(File.separator);
-        for (int i = 0; i < countSubFolders; i++) {
-            for (int j = 0; j < countCharInFolderName; j++) {
-                sb.append(BlogConfig.SYMBOLS.charAt(random.nextInt(BlogConfig.SYMBOLS.length())));
-            }
+        int countCharInFolderName = config.getImageCountCharInFolderName();
+        for (int i = 0; i < config.getImageCountSubFolders(); i++) {
+            sb.append(hash, i * countCharInFolderName, (i + 1) * countCharInFolderName);
             sb.append(File.separator);
         }
         return sb.toString();
     }
 
-    private String generateFileName(int countCharInFileName, String format) {
-        SecureRandom random = new SecureRandom();
-        StringBuilder sb = new StringBuilder();
-        sb.append(config.getImagePrefixFileName()).append("-");
-        for (int i = 0; i < countCharInFileName; i++) {
-            sb.append(BlogConfig.SYMBOLS.charAt(random.nextInt(BlogConfig.SYMBOLS.length())));
-        }
-        sb.append(".").append(format);
-        return sb.toString();
-    }
-
     public String generateFileIconPath() {
         String path = config.getImagePath() +
                 File.separator +
@@ -131,19 +285,13 @@ public class ImageService {
         return path;
     }
 
-    public String SaveResizerImage(MultipartFile multipartFile, String fileName) throws IOException {
-        return SaveResizerImage(multipartFile, config.getImageAvatarSize(),
+    public String SaveResizerImage(BufferedImage image, String fileName) throws IOException {
+        return SaveResizerImage(image, config.getImageAvatarSize(),
                 generateFileIconPath(), fileName, config.getImageAvatarFormat());
     }
 
-    public String SaveResizerImage(MultipartFile multipartFile, int targetSize,
+    public String SaveResizerImage(BufferedImage image, int targetSize,
                                    String dstFolder, String fileName, String formatImage) throws IOException {
-        checkFileSize(multipartFile, BlogConfig.ERROR_PHOTO_FRONTEND_NAME,
-                BlogConfig.ERROR_FAILED_SIZE_PHOTO_FRONTEND_MSG);
-        BufferedImage image = ImageIO.read(multipartFile.getInputStream());
-        if (image == null) {
-            throw new IOException("Ошибка чения файла");
-        }
         BufferedImage resizeImage = Scalr.resize(image, targetSize);
         String newFilePath = dstFolder + File.separator + fileName + "." + formatImage;
         File newFile = new File(newFilePath);
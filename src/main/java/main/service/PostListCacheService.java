@@ -0,0 +1,118 @@
+package main.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import main.api.dto.PostDTO;
+import main.api.response.PostListResponse;
+import main.config.BlogConfig;
+import main.event.PostEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+@Service
+public class PostListCacheService {
+
+    private static final int RESPONSE_BASE_WEIGHT = 64;
+    private static final int POST_BASE_WEIGHT = 128;
+
+    private final boolean enabled;
+    private final Cache<PostListKey, PostListResponse> cache;
+    private final Object invalidationLock = new Object();
+    private long generation;
+
+    @Autowired
+    public PostListCacheService(BlogConfig config, MeterRegistry meterRegistry) {
+        enabled = config.isPostListCacheEnabled();
+        cache = Caffeine.newBuilder()
+                .maximumWeight(config.getPostListCacheMaxWeight())
+                .weigher((PostListKey key, PostListResponse response) -> weigh(response))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "postList");
+    }
+
+    public PostListResponse get(String mode, int pageOffset, int limit, Supplier<PostListResponse> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        PostListKey key = new PostListKey(mode, pageOffset, limit);
+        PostListResponse response = cache.getIfPresent(key);
+        if (response != null) {
+            return response;
+        }
+        long loadGeneration;
+        synchronized (invalidationLock) {
+            loadGeneration = generation;
+        }
+        response = loader.get();
+        synchronized (invalidationLock) {
+            if (generation == loadGeneration) {
+                cache.put(key, response);
+            }
+        }
+        return response;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostEvent(PostEvent event) {
+        switch (event.getType()) {
+            case VOTED:
+                invalidateIf(key -> key.getMode().equals(BlogConfig.POST_SORT_PARAMETER_NAME_BY_LIKE_DES),
+                        event.getPostId());
+                break;
+            case COMMENTED:
+                invalidateIf(key -> key.getMode().equals(BlogConfig.POST_SORT_PARAMETER_NAME_BY_COMMENT_DES),
+                        event.getPostId());
+                break;
+            default:
+                if (!event.isVisibleBefore() && !event.isVisibleAfter()) {
+                    return;
+                }
+                if (event.isVisibleBefore() && event.isVisibleAfter()
+                        && Objects.equals(event.getBefore().getTime(), event.getAfter().getTime())) {
+                    invalidateIf(key -> false, event.getPostId());
+                } else {
+                    synchronized (invalidationLock) {
+                        generation++;
+                        cache.invalidateAll();
+                    }
+                }
+        }
+    }
+
+    private void invalidateIf(Predicate<PostListKey> keyPredicate, int postId) {
+        synchronized (invalidationLock) {
+            generation++;
+            cache.asMap().entrySet().removeIf(entry -> keyPredicate.test(entry.getKey())
+                    || entry.getValue().getPosts().stream().anyMatch(post -> post.getId() == postId));
+        }
+    }
+
+    private static int weigh(PostListResponse response) {
+        int weight = RESPONSE_BASE_WEIGHT;
+        for (PostDTO post : response.getPosts()) {
+            weight += POST_BASE_WEIGHT + 2 * (length(post.getTitle()) + length(post.getAnnounce())
+                    + length(post.getUser().getName()));
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    @Value
+    private static class PostListKey {
+        String mode;
+        int pageOffset;
+        int limit;
+    }
+}
@@ -0,0 +1,239 @@
+package main.service;
+
+import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.model.enums.PostEventType;
+import main.model.projections.PostSearchSource;
+import main.model.repositories.PostRepository;
+import org.apache.lucene.analysis.*;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.en.PorterStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ConditionalTokenFilter;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.analysis.snowball.SnowballFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.tartarus.snowball.ext.RussianStemmer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Service
+public class PostSearchService {
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_TEXT = "text";
+    private static final float TITLE_BOOST = 2.0f;
+    private static final String INDEX_VERSION_KEY = "index-version";
+    private static final String INDEX_VERSION = "2";
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final PostRepository postRepository;
+    private final BlogConfig config;
+    private final Analyzer analyzer = new PostAnalyzer();
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    private volatile boolean ready;
+
+    @Autowired
+    public PostSearchService(PostRepository postRepository, BlogConfig config) {
+        this.postRepository = postRepository;
+        this.config = config;
+    }
+
+    @PostConstruct
+    public void openOnStart() {
+        if (!config.isSearchIndexEnabled()) {
+            return;
+        }
+        try {
+            Directory directory = new MMapDirectory(Paths.get(config.getSearchIndexPath()));
+            String storedVersion = DirectoryReader.indexExists(directory) ?
+                    SegmentInfos.readLatestCommit(directory).getUserData().get(INDEX_VERSION_KEY) : null;
+            indexWriter = new IndexWriter(directory,
+                    new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+            indexWriter.setLiveCommitData(Map.of(INDEX_VERSION_KEY, INDEX_VERSION).entrySet());
+            searcherManager = new SearcherManager(indexWriter, null);
+            if (indexWriter.getDocStats().numDocs == 0 || !INDEX_VERSION.equals(storedVersion)) {
+                indexExecutor.execute(this::rebuild);
+            } else {
+                ready = true;
+                BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Поисковый индекс загружен, постов: " +
+                        indexWriter.getDocStats().numDocs);
+            }
+        } catch (IOException ex) {
+            BlogConfig.LOGGER.error("Ошибка открытия поискового индекса: " + ex.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostEvent(PostEvent event) {
+        if (indexWriter == null || event.getType() == PostEventType.VOTED
+                || event.getType() == PostEventType.COMMENTED) {
+            return;
+        }
+        indexExecutor.execute(() -> reindex(event.getPostId()));
+    }
+
+    public Optional<Page<Integer>> search(String query, int page, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, Map.of(FIELD_TITLE, TITLE_BOOST, FIELD_TEXT, 1.0f));
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query luceneQuery = parser.parse(query);
+        PageRequest pageRequest = PageRequest.of(page, limit);
+        if (luceneQuery == null) {
+            return Optional.of(new PageImpl<>(new ArrayList<>(), pageRequest, 0));
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                if (pageRequest.getOffset() + limit > config.getSearchIndexMaxDepth()) {
+                    return Optional.of(new PageImpl<>(new ArrayList<>(), pageRequest, searcher.count(luceneQuery)));
+                }
+                TopScoreDocCollector collector = TopScoreDocCollector.create(
+                        (int) pageRequest.getOffset() + limit, Integer.MAX_VALUE);
+                searcher.search(luceneQuery, collector);
+                List<Integer> ids = new ArrayList<>();
+                for (ScoreDoc scoreDoc : collector.topDocs((int) pageRequest.getOffset(), limit).scoreDocs) {
+                    ids.add(Integer.parseInt(searcher.doc(scoreDoc.doc, Set.of(FIELD_ID)).get(FIELD_ID)));
+                }
+                return Optional.of(new PageImpl<>(ids, pageRequest, collector.getTotalHits()));
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            BlogConfig.LOGGER.error("Ошибка поиска по индексу: " + ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        indexExecutor.shutdown();
+        try {
+            if (!indexExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                BlogConfig.LOGGER.error("Обновление поискового индекса не завершилось до остановки");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        ready = false;
+        if (indexWriter != null) {
+            searcherManager.close();
+            indexWriter.close();
+        }
+    }
+
+    private void rebuild() {
+        try {
+            indexWriter.deleteAll();
+            PageRequest batch = PageRequest.of(0, config.getSearchIndexBatchSize());
+            int indexedCount = 0;
+            List<PostSearchSource> posts = postRepository.findAllSearchSources(batch, 0);
+            while (!posts.isEmpty()) {
+                for (PostSearchSource post : posts) {
+                    indexWriter.addDocument(toDocument(post));
+                }
+                indexedCount += posts.size();
+                posts = postRepository.findAllSearchSources(batch, posts.get(posts.size() - 1).getId());
+            }
+            indexWriter.commit();
+            searcherManager.maybeRefresh();
+            ready = true;
+            BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Поисковый индекс построен, постов: " + indexedCount);
+        } catch (Exception ex) {
+            BlogConfig.LOGGER.error("Ошибка построения поискового индекса: " + ex.getMessage());
+        }
+    }
+
+    private void reindex(int postId) {
+        try {
+            Term idTerm = new Term(FIELD_ID, String.valueOf(postId));
+            Optional<PostSearchSource> post = postRepository.findSearchSourceById(postId);
+            if (post.isPresent()) {
+                indexWriter.updateDocument(idTerm, toDocument(post.get()));
+            } else {
+                indexWriter.deleteDocuments(idTerm);
+            }
+            indexWriter.commit();
+            searcherManager.maybeRefresh();
+        } catch (Exception ex) {
+            BlogConfig.LOGGER.error("Ошибка обновления поискового индекса для поста с id " + postId +
+                    ": " + ex.getMessage());
+        }
+    }
+
+    private Document toDocument(PostSearchSource post) {
+        Document document = new Document();
+        document.add(new StringField(FIELD_ID, String.valueOf(post.getId()), Field.Store.YES));
+        document.add(new TextField(FIELD_TITLE, post.getTitle(), Field.Store.NO));
+        document.add(new TextField(FIELD_TEXT, Jsoup.parse(post.getText()).text(), Field.Store.NO));
+        return document;
+    }
+
+    private static class PostAnalyzer extends Analyzer {
+        private static final CharArraySet STOP_WORDS = new CharArraySet(RussianAnalyzer.getDefaultStopSet(), true);
+
+        static {
+            STOP_WORDS.addAll(EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new LowerCaseFilter(source);
+            result = new StopFilter(result, STOP_WORDS);
+            result = new ScriptStemFilter(result, true, in -> new SnowballFilter(in, new RussianStemmer()));
+            result = new ScriptStemFilter(result, false, PorterStemFilter::new);
+            return new TokenStreamComponents(source, result);
+        }
+    }
+
+    private static class ScriptStemFilter extends ConditionalTokenFilter {
+        private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+        private final boolean cyrillic;
+
+        ScriptStemFilter(TokenStream input, boolean cyrillic, Function<TokenStream, TokenStream> stemmer) {
+            super(input, stemmer);
+            this.cyrillic = cyrillic;
+        }
+
+        @Override
+        protected boolean shouldFilter() {
+            return termAttribute.length() > 0 && cyrillic ==
+                    (Character.UnicodeScript.of(termAttribute.charAt(0)) == Character.UnicodeScript.CYRILLIC);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package main.service;
 
 import lombok.AllArgsConstructor;
 import main.api.dto.CommentPostDTO;
+import main.api.dto.CursorDTO;
 import main.api.dto.PostDTO;
 import main.api.dto.UserDTO;
 import main.api.request.AddPostRequest;
@@ -9,6 +10,8 @@ import main.api.request.CommentRequest;
 import main.api.request.ModeratePostRequest;
 import main.api.response.*;
 import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.event.PostSnapshot;
 import main.exception.DataNotFoundException;
 import main.exception.IllegalParameterException;
 import main.exception.ResultIllegalParameterException;
@@ -17,22 +20,26 @@ import main.model.PostComment;
 import main.model.Tag;
 import main.model.User;
 import main.model.enums.ModerationStatusType;
+import main.model.enums.PostEventType;
+import main.model.projections.PostPreview;
 import main.model.repositories.PostRepository;
 import main.model.repositories.TagRepository;
 import org.jsoup.Jsoup;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.naming.AuthenticationException;
 import java.security.Principal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
 import java.util.*;
 
 @Service
@@ -43,6 +50,12 @@ public class PostService {
             "argument in the '/post' request";
     private static final String MSG_EXCEPTION_INVALID_PARAM_STATUS_VALUE = "Invalid value of the 'status' " +
             "argument in the '/moderation' request";
+    private static final String MSG_EXCEPTION_INVALID_PARAM_LIMIT_VALUE = "Invalid value of the 'limit' " +
+            "argument in the '/post' request";
+    private static final String MSG_EXCEPTION_INVALID_PARAM_COMMENT_PAGE_VALUE = "Invalid value of the " +
+            "'commentOffset' or 'commentLimit' argument in the '/post/{id}' request";
+    private static final LocalDateTime CURSOR_MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final LocalDateTime CURSOR_MIN_TIME = LocalDateTime.of(1000, 1, 1, 0, 0, 0);
 
     @Autowired
     private final PostRepository postRepository;
@@ -58,9 +71,35 @@ public class PostService {
     private final CommentService commentService;
     @Autowired
     private final TimeService timeService;
+    @Autowired
+    private final CursorService cursorService;
+    @Autowired
+    private final AnnounceService announceService;
+    @Autowired
+    private final PostListCacheService postListCacheService;
+    @Autowired
+    private final PublicationService publicationService;
+    @Autowired
+    private final ViewCountService viewCountService;
+    @Autowired
+    private final PostSearchService postSearchService;
+    @Autowired
+    private final TrigramIndexService trigramIndexService;
+    @Autowired
+    private final ImageService imageService;
+    @Autowired
+    private final DisplayTextService displayTextService;
+    @Autowired
+    private final ApplicationEventPublisher eventPublisher;
 
     public PostListResponse getPosts(int offset, int limit, String mode) {
-        int pageOffset = offset / limit;
+        int checkedLimit = checkLimit(limit);
+        int pageOffset = offset / checkedLimit;
+        return postListCacheService.get(mode, pageOffset, checkedLimit,
+                () -> loadPosts(pageOffset, checkedLimit, mode));
+    }
+
+    private PostListResponse loadPosts(int pageOffset, int limit, String mode) {
         switch (mode) {
             case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_DATE_PUBLICATION_DES):
                 return getPostResponse(postRepository
@@ -69,38 +108,93 @@ public class PostService {
                 return getPostResponse(postRepository
                         .findAll(PageRequest.of(pageOffset, limit, Sort.by("time").ascending())));
             case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_COMMENT_DES):
-                return getPostResponse(postRepository.findAllSortByCountCommentDesc(PageRequest.of(pageOffset, limit)));
+                return getPostResponse(postRepository
+                        .findAllSortByCountCommentDesc(PageRequest.of(pageOffset, limit)));
             case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_LIKE_DES):
-                return getPostResponse(postRepository.findAllSortByCountLikeDesc(PageRequest.of(pageOffset, limit)));
+                return getPostResponse(postRepository
+                        .findAllSortByCountLikeDesc(PageRequest.of(pageOffset, limit)));
+            default:
+                throw new IllegalParameterException(MSG_EXCEPTION_INVALID_PARAM_MODE_VALUE);
+        }
+    }
+
+    public PostListResponse getPostsByCursor(String cursor, int limit, String mode) {
+        limit = checkLimit(limit);
+        Pageable pageable = PageRequest.of(0, limit);
+        CursorDTO cursorDTO = cursor.isEmpty() ? null : cursorService.decode(cursor);
+        List<PostPreview> posts;
+        switch (mode) {
+            case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_DATE_PUBLICATION_DES):
+                posts = cursorDTO == null ?
+                        postRepository.findAllBeforeCursorSortByTimeDesc(pageable, CURSOR_MAX_TIME, Integer.MAX_VALUE) :
+                        postRepository.findAllBeforeCursorSortByTimeDesc(pageable,
+                                timeService.getLocalDateTimeFromTimestamp(cursorDTO.getKey()), cursorDTO.getId());
+                break;
+            case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_DATE_PUBLICATION_ASC):
+                posts = cursorDTO == null ?
+                        postRepository.findAllAfterCursorSortByTimeAsc(pageable, CURSOR_MIN_TIME, 0) :
+                        postRepository.findAllAfterCursorSortByTimeAsc(pageable,
+                                timeService.getLocalDateTimeFromTimestamp(cursorDTO.getKey()), cursorDTO.getId());
+                break;
+            case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_COMMENT_DES):
+                posts = cursorDTO == null ?
+                        postRepository.findAllAfterCursorSortByCountCommentDesc(pageable, Integer.MAX_VALUE, 0) :
+                        postRepository.findAllAfterCursorSortByCountCommentDesc(pageable,
+                                (int) cursorDTO.getKey(), cursorDTO.getId());
+                break;
+            case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_LIKE_DES):
+                posts = cursorDTO == null ?
+                        postRepository.findAllAfterCursorSortByCountLikeDesc(pageable, Integer.MAX_VALUE, 0) :
+                        postRepository.findAllAfterCursorSortByCountLikeDesc(pageable,
+                                (int) cursorDTO.getKey(), cursorDTO.getId());
+                break;
             default:
                 throw new IllegalParameterException(MSG_EXCEPTION_INVALID_PARAM_MODE_VALUE);
         }
+        List<PostDTO> postDTOS = new ArrayList<>();
+        posts.forEach(post -> postDTOS.add(postPreviewToPostDTO(post)));
+        String nextCursor = posts.size() < limit ? null : getNextCursor(posts.get(posts.size() - 1), mode);
+        return new PostListResponse(countAllPosts(), postDTOS, nextCursor);
     }
 
     public PostListResponse getSearchPosts(int offset, int limit, String query) {
+        limit = checkLimit(limit);
         String queryTrim = query.trim();
         if (queryTrim.isEmpty()) {
             return getPosts(offset, limit, BlogConfig.POST_SORT_PARAMETER_NAME_BY_DATE_PUBLICATION_DES);
         }
         int pageOffset = offset / limit;
+        Optional<Page<Integer>> foundPostIDs = postSearchService.search(queryTrim, pageOffset, limit);
+        if (foundPostIDs.isEmpty() || foundPostIDs.get().getTotalElements() == 0) {
+            Optional<Page<Integer>> similarPostIDs = trigramIndexService.search(queryTrim, pageOffset, limit);
+            if (similarPostIDs.isPresent() && similarPostIDs.get().getTotalElements() > 0) {
+                return getPostResponseByIDs(similarPostIDs.get());
+            }
+        }
+        if (foundPostIDs.isPresent()) {
+            return getPostResponseByIDs(foundPostIDs.get());
+        }
         return getPostResponse(postRepository.findAllByQuery(PageRequest
                 .of(pageOffset, limit, Sort.by("time").descending()), queryTrim));
     }
 
     public PostListResponse getPostsByDate(int offset, int limit, String date) throws ParseException {
+        limit = checkLimit(limit);
         String dateTrim = date.trim();
         if (dateTrim.isEmpty()) {
             return new PostListResponse(0, new ArrayList<>());
         }
         SimpleDateFormat formatDate = new SimpleDateFormat(config.getTimeDateFormat());
-        Date searchDate = formatDate.parse(dateTrim);
+        LocalDateTime searchDayStart = formatDate.parse(dateTrim).toInstant()
+                .atZone(ZoneId.systemDefault()).toLocalDate().atStartOfDay();
 
         int pageOffset = offset / limit;
         return getPostResponse(postRepository.findAllByDate(PageRequest
-                .of(pageOffset, limit, Sort.by("time").descending()), searchDate));
+                .of(pageOffset, limit, Sort.by("time").descending()), searchDayStart, searchDayStart.plusDays(1)));
     }
 
     public PostListResponse getPostsByTag(int offset, int limit, String tag) {
+        limit = checkLimit(limit);
         String tagTrim = tag.trim();
         if (tagTrim.isEmpty()) {
             return new PostListResponse(0, new ArrayList<>());
@@ -112,6 +206,7 @@ public class PostService {
     }
 
     public PostListResponse getPostsModeration(int offset, int limit, ModerationStatusType status) {
+        limit = checkLimit(limit);
         User user = userService.getLoggedUser();
         int pageOffset = offset / limit;
         if (status == ModerationStatusType.NEW) {
@@ -126,6 +221,7 @@ public class PostService {
     }
 
     public PostListResponse getMyPosts(int offset, int limit, ModerationStatusType status) {
+        limit = checkLimit(limit);
         User user = userService.getLoggedUser();
         int pageOffset = offset / limit;
         Pageable pageable = PageRequest.of(pageOffset, limit, Sort.by("time").descending());
@@ -147,7 +243,11 @@ public class PostService {
         }
     }
 
-    public PostResponse getPostByID(int id, Principal principal) {
+    public PostResponse getPostByID(int id, Principal principal, String remoteAddress,
+                                    int commentOffset, int commentLimit) {
+        if (commentOffset < 0 || commentLimit < 1) {
+            throw new IllegalParameterException(MSG_EXCEPTION_INVALID_PARAM_COMMENT_PAGE_VALUE);
+        }
         Post post = postRepository.findById(id)
                 .orElseThrow(() -> new DataNotFoundException("Пост с id: " + id + " не найден"));
         if (post == null) {
@@ -160,17 +260,19 @@ public class PostService {
         postResponse.setActive(byteToBool(post.getIsActive()));
         postResponse.setUser(new UserDTO(post.getUser().getId(), post.getUser().getName()));
         postResponse.setTitle(post.getTitle());
-        postResponse.setText(post.getText());
-        postResponse.setLikeCount((int) post.getPostVotes()
-                .stream().filter(postVote -> postVote.getValue() == BlogConfig.POST_LIKE).count());
-        postResponse.setDislikeCount((int) post.getPostVotes()
-                .stream().filter(postVote -> postVote.getValue() == BlogConfig.POST_DISLIKE).count());
-        postResponse.setViewCount(incrementNumberViewPost(post, principal));
-        postResponse.setComments(getPostComments(post).toArray(CommentPostDTO[]::new));
+        postResponse.setText(displayTextService.getDisplayText(post));
+        postResponse.setLikeCount(post.getLikeCount());
+        postResponse.setDislikeCount(post.getDislikeCount());
+        postResponse.setViewCount(incrementNumberViewPost(post, principal, remoteAddress));
+        postResponse.setUniqueViewCount(viewCountService.getUniqueViews(post.getId()));
+        postResponse.setComments(commentService.getPostComments(post.getId(), commentOffset,
+                Math.min(commentLimit, config.getPostCommentMaxLimit()))
+                .toArray(CommentPostDTO[]::new));
         postResponse.setTags(post.getTags().stream().map(Tag::getName).toArray(String[]::new));
         return postResponse;
     }
 
+    @Transactional
     public ResultResponse addPost(AddPostRequest postRequest) {
         checkPostTitleAndText(postRequest.getTitle(), postRequest.getText());
         User user = userService.getLoggedUser();
@@ -185,9 +287,11 @@ public class PostService {
         return new ResultResponse(true);
     }
 
+    @Transactional
     public ResultResponse changePost(int id, AddPostRequest postRequest) throws AuthenticationException {
         Post post = postRepository.findById(id).orElseThrow(() ->
                 new DataNotFoundException("Запрашиваемый пост с id: " + id + " не найден"));
+        PostSnapshot before = PostSnapshot.of(post);
         User user = userService.getLoggedUser();
         checkPostTitleAndText(postRequest.getTitle(), postRequest.getText());
         if (userService.isModerator(user)) {
@@ -201,83 +305,99 @@ public class PostService {
         }
         post.setIsActive(postRequest.getActive());
         post.setTime(timeService.checkDateCreationPost(postRequest.getTimeStamp()));
+        publicationService.setPublishedState(post);
         post.setTitle(postRequest.getTitle());
+        imageService.updateImageReferences(post.getText(), postRequest.getText());
         post.setText(postRequest.getText());
+        announceService.setAnnounceToPost(post);
+        displayTextService.setDisplayTextToPost(post);
         addTagsToPost(post, postRequest.getTags());
         postRepository.save(post);
+        eventPublisher.publishEvent(new PostEvent(PostEventType.CHANGED, post.getId(),
+                before, PostSnapshot.of(post)));
         BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Пост с id " + post.getId() +
                 " изменен пользователем с id " + user.getId());
         return new ResultResponse(true);
     }
 
-    public CalendarResponse getCalendar(String year) {
-        int requestYear = year.isEmpty() ? LocalDateTime.now().getYear() : Integer.parseInt(year);
-        String[] allYearsPost = postRepository.findAllYearValue();
-        List<Post> postBySearchYear = postRepository.findAllByYear(requestYear);
-
-        DateTimeFormatter formatDate = DateTimeFormatter.ofPattern(config.getTimeDateFormat());
-        Map<String, Integer> dateCount = new HashMap<>();
-        for (Post post : postBySearchYear) {
-            String postDate = post.getTime().format(formatDate);
-            if (dateCount.containsKey(postDate)) {
-                dateCount.put(postDate, dateCount.get(postDate) + 1);
-                continue;
+    private int incrementNumberViewPost(Post post, Principal principal, String remoteAddress) {
+        String readerKey = "ip:" + remoteAddress;
+        if (principal != null) {
+            User user = userService.getLoggedUser();
+            if (userService.isModerator(user) || userService.isAuthor(user, post)) {
+                return post.getViewCount() + viewCountService.getPendingViews(post.getId());
             }
-            dateCount.put(postDate, 1);
+            readerKey = "user:" + user.getId();
         }
-        return new CalendarResponse(allYearsPost, dateCount);
+        viewCountService.addView(post.getId(), readerKey);
+        return post.getViewCount() + viewCountService.getPendingViews(post.getId());
     }
 
-    private List<CommentPostDTO> getPostComments(Post post) {
-        List<CommentPostDTO> result = new ArrayList<>();
-        List<PostComment> postCommentList = post.getPostComments();
-        for (PostComment postComment : postCommentList) {
-            CommentPostDTO postCommentDTO = new CommentPostDTO();
-            postCommentDTO.setId(postComment.getId());
-            postCommentDTO.setText(postComment.getText());
-            postCommentDTO.setUser(new UserDTO(postComment.getUser().getId(),
-                    postComment.getUser().getName(), postComment.getUser().getPhoto()));
-            postCommentDTO.setTimeStamp(timeService.getTimestampFromLocalDateTime(postComment.getTime()));
-            result.add(postCommentDTO);
+    private String getNextCursor(PostPreview post, String mode) {
+        switch (mode) {
+            case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_COMMENT_DES):
+                return cursorService.encode(post.getCommentCount(), post.getId());
+            case (BlogConfig.POST_SORT_PARAMETER_NAME_BY_LIKE_DES):
+                return cursorService.encode(post.getLikeCount() + post.getDislikeCount(), post.getId());
+            default:
+                return cursorService.encode(timeService.getTimestampFromLocalDateTime(post.getTime()), post.getId());
         }
-        return result;
     }
 
-    private int incrementNumberViewPost(Post post, Principal principal) {
-        int viewCount = post.getViewCount();
-        if (principal != null) {
-            User user = userService.getLoggedUser();
-            if (userService.isModerator(user) || userService.isAuthor(user, post)) {
-                return viewCount;
-            }
+    private int checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalParameterException(MSG_EXCEPTION_INVALID_PARAM_LIMIT_VALUE);
         }
-        post.setViewCount(++viewCount);
-        postRepository.save(post);
-        return viewCount;
+        return Math.min(limit, config.getPostMaxLimit());
     }
 
-    private PostListResponse getPostResponse(Page<Post> postPage) {
+    private PostListResponse getPostResponse(Page<PostPreview> postPage) {
         List<PostDTO> postDTOS = new ArrayList<>();
-        postPage.forEach(post -> postDTOS.add(postToPostDTO(post)));
+        postPage.forEach(post -> postDTOS.add(postPreviewToPostDTO(post)));
         return new PostListResponse(postPage.getTotalElements(), postDTOS);
     }
 
+    private PostListResponse getPostResponseByIDs(Page<Integer> postIDPage) {
+        List<PostDTO> postDTOS = new ArrayList<>();
+        if (postIDPage.hasContent()) {
+            Map<Integer, PostPreview> posts = new HashMap<>();
+            postRepository.findAllPreviewsByIds(postIDPage.getContent())
+                    .forEach(post -> posts.put(post.getId(), post));
+            postIDPage.forEach(id -> Optional.ofNullable(posts.get(id))
+                    .ifPresent(post -> postDTOS.add(postPreviewToPostDTO(post))));
+        }
+        return new PostListResponse(postIDPage.getTotalElements(), postDTOS);
+    }
+
+    private PostDTO postPreviewToPostDTO(PostPreview post) {
+        PostDTO postDTO = new PostDTO();
+        postDTO.setId(post.getId());
+        postDTO.setTimeStamp(timeService.getTimestampFromLocalDateTime(post.getTime()));
+        postDTO.setUser(new UserDTO(post.getUserId(), post.getUserName()));
+        postDTO.setTitle(post.getTitle());
+        postDTO.setAnnounce(post.getAnnounce());
+        postDTO.setLikeCount(post.getLikeCount());
+        postDTO.setDislikeCount(post.getDislikeCount());
+        postDTO.setCommentCount(post.getCommentCount());
+        postDTO.setViewCount(post.getViewCount() + viewCountService.getPendingViews(post.getId()));
+        return postDTO;
+    }
+
     public PostDTO postToPostDTO(Post post) {
         PostDTO postDTO = new PostDTO();
         postDTO.setId(post.getId());
         postDTO.setTimeStamp(timeService.getTimestampFromLocalDateTime(post.getTime()));
         postDTO.setUser(new UserDTO(post.getUser().getId(), post.getUser().getName()));
         postDTO.setTitle(post.getTitle());
-        postDTO.setAnnounce(getAnnounceFromText(post.getText()));
-        postDTO.setLikeCount((int) post.getPostVotes()
-                .stream().filter(postVote -> postVote.getValue() == BlogConfig.POST_LIKE).count());
-        postDTO.setDislikeCount((int) post.getPostVotes()
-                .stream().filter(postVote -> postVote.getValue() == BlogConfig.POST_DISLIKE).count());
-        postDTO.setCommentCount(post.getPostComments().size());
-        postDTO.setViewCount(post.getViewCount());
+        postDTO.setAnnounce(post.getAnnounce());
+        postDTO.setLikeCount(post.getLikeCount());
+        postDTO.setDislikeCount(post.getDislikeCount());
+        postDTO.setCommentCount(post.getCommentCount());
+        postDTO.setViewCount(post.getViewCount() + viewCountService.getPendingViews(post.getId()));
         return postDTO;
     }
 
+    @Transactional
     public IDResponse addComment(CommentRequest commentRequest) {
         checkPostComment(commentRequest.getText());
         Post post = postRepository.findPostByIDIsActiveAndAccepted(commentRequest.getPostId())
@@ -294,6 +414,9 @@ public class PostService {
         currentComment.setText(commentRequest.getText());
         currentComment.setTime(LocalDateTime.now());
         commentService.saveComment(currentComment);
+        imageService.updateImageReferences(null, currentComment.getText());
+        postRepository.incrementCommentCount(post.getId());
+        eventPublisher.publishEvent(new PostEvent(PostEventType.COMMENTED, post.getId()));
         return new IDResponse(currentComment.getId());
     }
 
@@ -301,9 +424,12 @@ public class PostService {
         User user = userService.getLoggedUser();
         Post post = postRepository.findById(moderatePostRequest.getPostId())
                 .orElseThrow(() -> new IllegalParameterException("ID поста указан не верно"));
+        PostSnapshot before = PostSnapshot.of(post);
         post.setModeratorID(user.getId());
         post.setModerationStatus(getModerationStatus(moderatePostRequest.getDecision()));
         postRepository.save(post);
+        eventPublisher.publishEvent(new PostEvent(PostEventType.MODERATED, post.getId(),
+                before, PostSnapshot.of(post)));
         if (post.getModerationStatus().equals(ModerationStatusType.ACCEPTED)) {
             BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Пост с id " + post.getId() +
                     " принят модератором с id " + user.getId());
@@ -350,11 +476,17 @@ public class PostService {
         post.setModerationStatus(moderationStatusType);
         post.setUser(user);
         post.setTime(timeService.checkDateCreationPost(postRequest.getTimeStamp()));
+        publicationService.setPublishedState(post);
         post.setTitle(postRequest.getTitle());
         post.setText(postRequest.getText());
+        imageService.updateImageReferences(null, post.getText());
         post.setViewCount(0);
+        announceService.setAnnounceToPost(post);
+        displayTextService.setDisplayTextToPost(post);
         addTagsToPost(post, postRequest.getTags());
         postRepository.save(post);
+        eventPublisher.publishEvent(new PostEvent(PostEventType.ADDED, post.getId(),
+                null, PostSnapshot.of(post)));
     }
 
     private void addTagsToPost(Post post, String[] strTags) {
@@ -370,19 +502,6 @@ public class PostService {
         return Jsoup.parse(html).text();
     }
 
-    private String getAnnounceFromText(String text) {
-        String modifyText = text;
-        if (text.length() > config.getPostMaxLengthAnnounce() * 100) {
-            modifyText = modifyText.substring(0, (config.getPostMaxLengthAnnounce() * 100) - 1);
-        }
-        modifyText = removeHTMLTegFromText(modifyText);
-        int spaceIndex = modifyText.lastIndexOf(' ',
-                modifyText.length() < config.getPostMaxLengthAnnounce() ?
-                        (modifyText.length() - 1) : (config.getPostMaxLengthAnnounce() - 1));
-        modifyText = modifyText.substring(0, spaceIndex) + "...";
-        return modifyText;
-    }
-
     private boolean byteToBool(byte value) {
         return value == 1;
     }
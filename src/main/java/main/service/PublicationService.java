@@ -0,0 +1,117 @@
+package main.service;
+
+import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.event.PostSnapshot;
+import main.model.DataMigration;
+import main.model.Post;
+import main.model.enums.PostEventType;
+import main.model.repositories.DataMigrationRepository;
+import main.model.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ScheduledFuture;
+
+@Service
+public class PublicationService {
+
+    private static final String MIGRATION_NAME = "post-published-backfill";
+
+    private final PostRepository postRepository;
+    private final DataMigrationRepository dataMigrationRepository;
+    private final TaskScheduler taskScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlogConfig config;
+
+    private ScheduledFuture<?> nextPublication;
+    private LocalDateTime nextPublicationTime;
+
+    @Autowired
+    public PublicationService(PostRepository postRepository, DataMigrationRepository dataMigrationRepository,
+                              TaskScheduler taskScheduler, ApplicationEventPublisher eventPublisher,
+                              BlogConfig config) {
+        this.postRepository = postRepository;
+        this.dataMigrationRepository = dataMigrationRepository;
+        this.taskScheduler = taskScheduler;
+        this.eventPublisher = eventPublisher;
+        this.config = config;
+    }
+
+    public void setPublishedState(Post post) {
+        post.setIsPublished(post.getTime().isAfter(LocalDateTime.now()) ? (byte) 0 : (byte) 1);
+    }
+
+    // runs before the tag, calendar, statistics and search index builders listening to the same event
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void publishOnStart() {
+        try {
+            if (!dataMigrationRepository.existsById(MIGRATION_NAME)) {
+                int publishedCount = postRepository.publishAllDue(LocalDateTime.now());
+                dataMigrationRepository.save(new DataMigration(MIGRATION_NAME, LocalDateTime.now()));
+                BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Отмечены опубликованными существующие посты: " +
+                        publishedCount);
+            }
+        } catch (DataAccessException ex) {
+            BlogConfig.LOGGER.error("Ошибка отметки опубликованных постов: " + ex.getMessage());
+        }
+        publishDuePosts();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostEvent(PostEvent event) {
+        if (event.getAfter() != null && event.getAfter().getIsPublished() == 0) {
+            schedulePublication(event.getAfter().getTime());
+        }
+    }
+
+    public synchronized void publishDuePosts() {
+        nextPublication = null;
+        nextPublicationTime = null;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (Post post : postRepository.findAllDueForPublication(now)) {
+                PostSnapshot before = PostSnapshot.of(post);
+                if (postRepository.publish(post.getId(), now) == 0) {
+                    continue;
+                }
+                post.setIsPublished((byte) 1);
+                eventPublisher.publishEvent(new PostEvent(PostEventType.PUBLISHED, post.getId(),
+                        before, PostSnapshot.of(post)));
+                BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Опубликован отложенный пост с id " + post.getId());
+            }
+            scheduleNextPublication();
+        } catch (RuntimeException ex) {
+            BlogConfig.LOGGER.error("Ошибка публикации отложенных постов: " + ex.getMessage());
+            schedulePublication(LocalDateTime.now().plus(config.getPostPublicationRetryDelay(),
+                    ChronoUnit.MILLIS));
+        }
+    }
+
+    private void scheduleNextPublication() {
+        postRepository.findNextPublicationTime().ifPresent(this::schedulePublication);
+    }
+
+    private synchronized void schedulePublication(LocalDateTime time) {
+        if (nextPublicationTime != null && !time.isBefore(nextPublicationTime)) {
+            return;
+        }
+        if (nextPublication != null) {
+            nextPublication.cancel(false);
+        }
+        nextPublicationTime = time;
+        nextPublication = taskScheduler.schedule(this::publishDuePosts, time.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
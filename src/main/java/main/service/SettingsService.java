@@ -1,62 +1,115 @@
 package main.service;
 
-import lombok.AllArgsConstructor;
 import main.api.request.SettingsRequest;
 import main.api.response.SettingsResponse;
 import main.config.BlogConfig;
 import main.model.GlobalSetting;
 import main.model.repositories.GlobalSettingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
-@AllArgsConstructor
 public class SettingsService {
 
-    @Autowired
     private final GlobalSettingRepository globalSettingRepository;
+    private final BlogConfig config;
+
+    private volatile SettingsSnapshot snapshot;
+
+    @Autowired
+    public SettingsService(GlobalSettingRepository globalSettingRepository, BlogConfig config) {
+        this.globalSettingRepository = globalSettingRepository;
+        this.config = config;
+    }
 
     public SettingsResponse getGlobalSettings() {
+        SettingsSnapshot settings = getSnapshot();
         SettingsResponse settingsResponse = new SettingsResponse();
-        Iterable<GlobalSetting> globalSettings = globalSettingRepository.findAll();
-        globalSettings.forEach(globalSetting -> {
-            switch (globalSetting.getCode()) {
-                case (BlogConfig.MULTI_USER_MODE_FIELD_NAME):
-                    settingsResponse.setMultiUserMode(stringToBoolean(globalSetting.getValue()));
-                    break;
-                case (BlogConfig.POST_PRE_MODERATION_FIELD_NAME):
-                    settingsResponse.setPostPreModeration(stringToBoolean(globalSetting.getValue()));
-                    break;
-                case (BlogConfig.STATISTIC_IS_PUBLIC_FIELD_NAME):
-                    settingsResponse.setStatisticsIsPublic(stringToBoolean(globalSetting.getValue()));
-                    break;
-            }
-        });
+        settingsResponse.setMultiUserMode(settings.multiUserMode);
+        settingsResponse.setPostPreModeration(settings.postPreModeration);
+        settingsResponse.setStatisticsIsPublic(settings.statisticsIsPublic);
         return settingsResponse;
     }
 
     public boolean getGlobalSettingByCode(String code) {
-        Iterable<GlobalSetting> globalSettings = globalSettingRepository.findAll();
-        for (GlobalSetting globalSetting : globalSettings) {
-            if (globalSetting.getCode().equals(code)) {
-                return stringToBoolean(globalSetting.getValue());
-            }
+        SettingsSnapshot settings = getSnapshot();
+        switch (code) {
+            case (BlogConfig.MULTI_USER_MODE_FIELD_NAME):
+                return settings.multiUserMode;
+            case (BlogConfig.POST_PRE_MODERATION_FIELD_NAME):
+                return settings.postPreModeration;
+            case (BlogConfig.STATISTIC_IS_PUBLIC_FIELD_NAME):
+                return settings.statisticsIsPublic;
+            default:
+                return false;
         }
-        return false;
     }
 
-    public void setGlobalSettings(SettingsRequest settings) {
-        saveSetting(BlogConfig.MULTI_USER_MODE_FIELD_NAME, settings.isMultiUserMode());
-        saveSetting(BlogConfig.POST_PRE_MODERATION_FIELD_NAME, settings.isPostPreModeration());
-        saveSetting(BlogConfig.STATISTIC_IS_PUBLIC_FIELD_NAME, settings.isStatisticsIsPublic());
+    @Transactional
+    public synchronized void setGlobalSettings(SettingsRequest settings) {
+        long version = globalSettingRepository.findMaxVersion().orElse(0L) + 1;
+        saveSetting(BlogConfig.MULTI_USER_MODE_FIELD_NAME, settings.isMultiUserMode(), version);
+        saveSetting(BlogConfig.POST_PRE_MODERATION_FIELD_NAME, settings.isPostPreModeration(), version);
+        saveSetting(BlogConfig.STATISTIC_IS_PUBLIC_FIELD_NAME, settings.isStatisticsIsPublic(), version);
+        snapshot = new SettingsSnapshot(settings.isMultiUserMode(), settings.isPostPreModeration(),
+                settings.isStatisticsIsPublic(), version);
     }
 
     public boolean isAllStatistic() {
-        return globalSettingRepository.existsByCodeAndValueIgnoreCase(
-                BlogConfig.STATISTIC_IS_PUBLIC_FIELD_NAME, BlogConfig.TRUE_VALUE);
+        return getSnapshot().statisticsIsPublic;
+    }
+
+    @Scheduled(fixedDelayString = "${config.settings-refresh-interval}")
+    public void refresh() {
+        SettingsSnapshot settings = snapshot;
+        if (!config.isSettingsSnapshotEnabled() || settings == null) {
+            return;
+        }
+        if (globalSettingRepository.findMaxVersion().orElse(0L) != settings.version) {
+            reload();
+            BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Глобальные настройки обновлены, версия: " +
+                    snapshot.version);
+        }
+    }
+
+    private SettingsSnapshot getSnapshot() {
+        if (!config.isSettingsSnapshotEnabled()) {
+            return loadSnapshot();
+        }
+        SettingsSnapshot settings = snapshot;
+        return settings != null ? settings : reload();
     }
 
-    private void saveSetting(String code, Boolean value) {
+    private synchronized SettingsSnapshot reload() {
+        snapshot = loadSnapshot();
+        return snapshot;
+    }
+
+    private SettingsSnapshot loadSnapshot() {
+        boolean multiUserMode = false;
+        boolean postPreModeration = false;
+        boolean statisticsIsPublic = false;
+        long version = 0;
+        for (GlobalSetting globalSetting : globalSettingRepository.findAll()) {
+            switch (globalSetting.getCode()) {
+                case (BlogConfig.MULTI_USER_MODE_FIELD_NAME):
+                    multiUserMode = stringToBoolean(globalSetting.getValue());
+                    break;
+                case (BlogConfig.POST_PRE_MODERATION_FIELD_NAME):
+                    postPreModeration = stringToBoolean(globalSetting.getValue());
+                    break;
+                case (BlogConfig.STATISTIC_IS_PUBLIC_FIELD_NAME):
+                    statisticsIsPublic = stringToBoolean(globalSetting.getValue());
+                    break;
+            }
+            version = Math.max(version, globalSetting.getVersion());
+        }
+        return new SettingsSnapshot(multiUserMode, postPreModeration, statisticsIsPublic, version);
+    }
+
+    private void saveSetting(String code, Boolean value, long version) {
         GlobalSetting setting = globalSettingRepository.findByCode(code);
         if (setting == null) {
             setting = new GlobalSetting();
@@ -64,6 +117,7 @@ public class SettingsService {
             setting.setName("");
         }
         setting.setValue(booleanToString(value));
+        setting.setVersion(version);
         globalSettingRepository.save(setting);
     }
 
@@ -74,4 +128,19 @@ public class SettingsService {
     private String booleanToString(Boolean value) {
         return value ? BlogConfig.TRUE_VALUE : BlogConfig.FALSE_VALUE;
     }
+
+    private static final class SettingsSnapshot {
+        private final boolean multiUserMode;
+        private final boolean postPreModeration;
+        private final boolean statisticsIsPublic;
+        private final long version;
+
+        private SettingsSnapshot(boolean multiUserMode, boolean postPreModeration, boolean statisticsIsPublic,
+                                 long version) {
+            this.multiUserMode = multiUserMode;
+            this.postPreModeration = postPreModeration;
+            this.statisticsIsPublic = statisticsIsPublic;
+            this.version = version;
+        }
+    }
 }
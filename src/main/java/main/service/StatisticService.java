@@ -1,56 +1,271 @@
 package main.service;
 
-import lombok.AllArgsConstructor;
 import main.api.response.StatisticResponse;
+import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.event.PostSnapshot;
+import main.event.ViewsFlushedEvent;
+import main.event.VoteEvent;
 import main.exception.DataNotFoundException;
+import main.model.PostViewSketch;
 import main.model.User;
+import main.model.projections.PostAuthor;
+import main.model.repositories.PostRepository;
+import main.model.repositories.PostViewSketchRepository;
+import main.model.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
-@AllArgsConstructor
 public class StatisticService {
 
-    @Autowired
     private final UserService userService;
-    @Autowired
     private final PostService postService;
-    @Autowired
     private final VoteService voteService;
-    @Autowired
     private final SettingsService settingsService;
+    private final ViewCountService viewCountService;
+    private final PostRepository postRepository;
+    private final PostViewSketchRepository postViewSketchRepository;
+    private final UserRepository userRepository;
+    private final BlogConfig config;
+    private final Map<Integer, StatisticResponse> userStatistics = new HashMap<>();
+
+    private StatisticResponse allStatistic;
+
+    @Autowired
+    public StatisticService(UserService userService, PostService postService, VoteService voteService,
+                            SettingsService settingsService, ViewCountService viewCountService,
+                            PostRepository postRepository, PostViewSketchRepository postViewSketchRepository,
+                            UserRepository userRepository, BlogConfig config) {
+        this.userService = userService;
+        this.postService = postService;
+        this.voteService = voteService;
+        this.settingsService = settingsService;
+        this.viewCountService = viewCountService;
+        this.postRepository = postRepository;
+        this.postViewSketchRepository = postViewSketchRepository;
+        this.userRepository = userRepository;
+        this.config = config;
+    }
 
     public StatisticResponse getMyStatistic() {
         User user = userService.getLoggedUser();
-        LocalDateTime date = postService.getTimeFirstPostByUser(user);
-        ZonedDateTime zonedDate = date.atZone(ZoneId.systemDefault());
+        if (!config.isStatisticSnapshotEnabled()) {
+            return loadUserStatistic(user);
+        }
+        synchronized (this) {
+            StatisticResponse statistic = userStatistics.get(user.getId());
+            if (statistic != null) {
+                return copyOf(statistic);
+            }
+        }
+        StatisticResponse statistic = loadUserStatistic(user);
+        synchronized (this) {
+            userStatistics.putIfAbsent(user.getId(), statistic);
+            return copyOf(userStatistics.get(user.getId()));
+        }
+    }
+
+    public StatisticResponse getAllStatistic() {
+        if (!settingsService.isAllStatistic() && !userService.isModerator(userService.getLoggedUser())) {
+            throw new DataNotFoundException("Статистика просмотра всего блога недоступна");
+        }
+        if (!config.isStatisticSnapshotEnabled()) {
+            return loadAllStatistic();
+        }
+        synchronized (this) {
+            if (allStatistic != null) {
+                return copyOf(allStatistic);
+            }
+        }
+        StatisticResponse statistic = loadAllStatistic();
+        synchronized (this) {
+            if (allStatistic == null) {
+                allStatistic = statistic;
+            }
+            return copyOf(allStatistic);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${config.statistic-reconcile-interval}")
+    public void reconcile() {
+        if (!config.isStatisticSnapshotEnabled()) {
+            return;
+        }
+        List<Integer> userIds;
+        synchronized (this) {
+            userIds = new ArrayList<>(userStatistics.keySet());
+        }
+        StatisticResponse reconciledAllStatistic = loadAllStatistic();
+        Map<Integer, StatisticResponse> reconciledUserStatistics = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user ->
+                reconciledUserStatistics.put(user.getId(), loadUserStatistic(user)));
+        synchronized (this) {
+            allStatistic = reconciledAllStatistic;
+            userStatistics.clear();
+            userStatistics.putAll(reconciledUserStatistics);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostEvent(PostEvent event) {
+        if (!config.isStatisticSnapshotEnabled() || (!event.isVisibleBefore() && !event.isVisibleAfter())) {
+            return;
+        }
+        if (event.isVisibleBefore() && event.isVisibleAfter()) {
+            if (!event.getBefore().getTime().equals(event.getAfter().getTime())) {
+                onPostTimeChanged(event.getBefore(), event.getAfter());
+            }
+            return;
+        }
+        int views = postRepository.findViewCountById(event.getPostId()).orElse(0);
+        int uniqueViews = postViewSketchRepository.findById(event.getPostId())
+                .map(PostViewSketch::getUniqueCount).orElse(0);
+        synchronized (this) {
+            if (event.isVisibleAfter()) {
+                PostSnapshot post = event.getAfter();
+                applyPost(allStatistic, post, 1, views, uniqueViews);
+                applyPost(userStatistics.get(post.getUserId()), post, 1, views, uniqueViews);
+            } else {
+                PostSnapshot post = event.getBefore();
+                applyPost(allStatistic, post, -1, -views, -uniqueViews);
+                applyPost(userStatistics.get(post.getUserId()), post, -1, -views, -uniqueViews);
+                if (allStatistic != null && allStatistic.getFirstPublication() == toEpochSecond(post.getTime())) {
+                    allStatistic = null;
+                }
+                StatisticResponse userStatistic = userStatistics.get(post.getUserId());
+                if (userStatistic != null && userStatistic.getFirstPublication() == toEpochSecond(post.getTime())) {
+                    userStatistics.remove(post.getUserId());
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onVoteEvent(VoteEvent event) {
+        if (!config.isStatisticSnapshotEnabled()) {
+            return;
+        }
+        int likes = voteDelta(BlogConfig.POST_LIKE, event);
+        int dislikes = voteDelta(BlogConfig.POST_DISLIKE, event);
+        applyVote(allStatistic, likes, dislikes);
+        applyVote(userStatistics.get(event.getUserId()), likes, dislikes);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onViewsFlushed(ViewsFlushedEvent event) {
+        if (!config.isStatisticSnapshotEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            if (allStatistic == null && userStatistics.isEmpty()) {
+                return;
+            }
+        }
+        List<Integer> postIds = new ArrayList<>(event.getViews().keySet());
+        event.getUniqueViews().keySet().stream().filter(id -> !event.getViews().containsKey(id)).forEach(postIds::add);
+        List<PostAuthor> authors = postRepository.findAllVisibleAuthorsByIds(postIds);
+        synchronized (this) {
+            for (PostAuthor author : authors) {
+                int views = event.getViews().getOrDefault(author.getId(), 0);
+                int uniqueViews = event.getUniqueViews().getOrDefault(author.getId(), 0);
+                applyViews(allStatistic, views, uniqueViews);
+                applyViews(userStatistics.get(author.getUserId()), views, uniqueViews);
+            }
+        }
+    }
+
+    private synchronized void onPostTimeChanged(PostSnapshot before, PostSnapshot after) {
+        long beforeTime = toEpochSecond(before.getTime());
+        long afterTime = toEpochSecond(after.getTime());
+        if (allStatistic != null) {
+            if (allStatistic.getFirstPublication() == beforeTime && afterTime > beforeTime) {
+                allStatistic = null;
+            } else {
+                allStatistic.setFirstPublication(Math.min(allStatistic.getFirstPublication(), afterTime));
+            }
+        }
+        StatisticResponse userStatistic = userStatistics.get(after.getUserId());
+        if (userStatistic != null) {
+            if (userStatistic.getFirstPublication() == beforeTime && afterTime > beforeTime) {
+                userStatistics.remove(after.getUserId());
+            } else {
+                userStatistic.setFirstPublication(Math.min(userStatistic.getFirstPublication(), afterTime));
+            }
+        }
+    }
+
+    private void applyPost(StatisticResponse statistic, PostSnapshot post, int posts, int views, int uniqueViews) {
+        if (statistic == null) {
+            return;
+        }
+        statistic.setPostsCount(statistic.getPostsCount() + posts);
+        applyViews(statistic, views, uniqueViews);
+        long time = toEpochSecond(post.getTime());
+        if (posts > 0 && (statistic.getFirstPublication() == 0 || time < statistic.getFirstPublication())) {
+            statistic.setFirstPublication(time);
+        }
+    }
+
+    private void applyViews(StatisticResponse statistic, int views, int uniqueViews) {
+        if (statistic == null) {
+            return;
+        }
+        statistic.setViewsCount(statistic.getViewsCount() + views);
+        statistic.setUniqueViewsCount(statistic.getUniqueViewsCount() + uniqueViews);
+    }
+
+    private void applyVote(StatisticResponse statistic, int likes, int dislikes) {
+        if (statistic == null) {
+            return;
+        }
+        statistic.setLikesCount(statistic.getLikesCount() + likes);
+        statistic.setDislikesCount(statistic.getDislikesCount() + dislikes);
+    }
+
+    private int voteDelta(byte counterValue, VoteEvent event) {
+        return (event.getValue() == counterValue ? 1 : 0) - (event.getPreviousValue() == counterValue ? 1 : 0);
+    }
 
+    private StatisticResponse loadUserStatistic(User user) {
         StatisticResponse statisticResponse = new StatisticResponse();
         statisticResponse.setPostsCount(postService.countPostsByUser(user));
         statisticResponse.setViewsCount(postService.countViewPostsByUser(user));
+        statisticResponse.setUniqueViewsCount(viewCountService.countUniqueViewsAllPostsByUser(user));
         statisticResponse.setLikesCount(voteService.countAllLikesByUser(user));
         statisticResponse.setDislikesCount(voteService.countAllDislikesByUser(user));
-        statisticResponse.setFirstPublication(zonedDate.toEpochSecond());
+        statisticResponse.setFirstPublication(toEpochSecond(postService.getTimeFirstPostByUser(user)));
         return statisticResponse;
     }
 
-    public StatisticResponse getAllStatistic() {
-        if (!settingsService.isAllStatistic() && !userService.isModerator(userService.getLoggedUser())) {
-            throw new DataNotFoundException("Статистика просмотра всего блога недоступна");
-        }
-        LocalDateTime date = postService.getTimeFirstPost();
-        ZonedDateTime zonedDate = date.atZone(ZoneId.systemDefault());
-
+    private StatisticResponse loadAllStatistic() {
         StatisticResponse statisticResponse = new StatisticResponse();
         statisticResponse.setPostsCount(postService.countAllPosts());
         statisticResponse.setViewsCount(postService.countViewAllPosts());
+        statisticResponse.setUniqueViewsCount(viewCountService.countUniqueViewsAllPosts());
         statisticResponse.setLikesCount(voteService.countAllLikes());
         statisticResponse.setDislikesCount(voteService.countAllDislikes());
-        statisticResponse.setFirstPublication(zonedDate.toEpochSecond());
+        statisticResponse.setFirstPublication(toEpochSecond(postService.getTimeFirstPost()));
         return statisticResponse;
     }
+
+    private StatisticResponse copyOf(StatisticResponse statistic) {
+        StatisticResponse copy = new StatisticResponse(statistic.getPostsCount(), statistic.getLikesCount(),
+                statistic.getDislikesCount(), statistic.getViewsCount(), statistic.getFirstPublication());
+        copy.setUniqueViewsCount(statistic.getUniqueViewsCount());
+        return copy;
+    }
+
+    private long toEpochSecond(LocalDateTime time) {
+        return time == null ? 0 : time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
 }
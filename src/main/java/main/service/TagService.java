@@ -1,44 +1,97 @@
 package main.service;
 
-import lombok.AllArgsConstructor;
 import main.api.dto.TagDTO;
 import main.api.response.TagResponse;
+import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.event.PostSnapshot;
 import main.exception.IllegalParameterException;
-import main.model.Tag;
+import main.model.projections.TagPostCount;
 import main.model.repositories.PostRepository;
 import main.model.repositories.TagRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
-@AllArgsConstructor
 public class TagService {
 
     private static final String ERROR_MSG_NORMALIZED_COEFFICIENT = "The value of the normalized coefficient is 0";
 
-    @Autowired
     private final TagRepository tagRepository;
-    @Autowired
     private final PostRepository postRepository;
+    private final BlogConfig config;
+    private final Map<String, Integer> tagPostCounts = new HashMap<>();
+    private final TagTrie tagTrie;
+
+    private int postCount;
+    private boolean ready;
+
+    @Autowired
+    public TagService(TagRepository tagRepository, PostRepository postRepository, BlogConfig config) {
+        this.tagRepository = tagRepository;
+        this.postRepository = postRepository;
+        this.config = config;
+        tagTrie = new TagTrie(config.getTagAutocompleteLimit());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void buildOnStart() {
+        if (!config.isTagIndexEnabled()) {
+            return;
+        }
+        tagPostCounts.clear();
+        tagPostCounts.putAll(loadTagPostCounts());
+        tagTrie.clear();
+        tagPostCounts.forEach(tagTrie::setCount);
+        postCount = getCountAcceptedPost();
+        ready = true;
+        BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Индекс тегов построен, тегов: " + tagPostCounts.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onPostEvent(PostEvent event) {
+        if (!ready) {
+            return;
+        }
+        if (event.isVisibleBefore()) {
+            applyPost(event.getBefore(), -1);
+        }
+        if (event.isVisibleAfter()) {
+            applyPost(event.getAfter(), 1);
+        }
+    }
 
     public TagResponse getTags(String query) {
-        int postCount = getCountAcceptedPost();
-        if (tagRepository.count() == 0 || postCount == 0) {
-            new TagResponse(new ArrayList<>());
+        Map<String, Integer> counts = null;
+        int acceptedPostCount = 0;
+        synchronized (this) {
+            if (ready) {
+                counts = query.isEmpty() ? new HashMap<>(tagPostCounts) : tagTrie.findTop(query);
+                acceptedPostCount = postCount;
+            }
+        }
+        if (counts == null) {
+            counts = loadTagPostCounts();
+            acceptedPostCount = getCountAcceptedPost();
+        }
+        if (counts.isEmpty() || acceptedPostCount == 0) {
+            return new TagResponse(new ArrayList<>());
         }
 
-        Iterable<Tag> tags = tagRepository.findAll();
         Map<String, Double> tagWeightsNoNormalize = new HashMap<>();
-        for (Tag tag : tags) {
+        for (Map.Entry<String, Integer> tag : counts.entrySet()) {
             if (!query.isEmpty()) {
-                if (!tagIsContainString(tag, query)) {
+                if (!tagIsContainString(tag.getKey(), query)) {
                     continue;
                 }
             }
-            tagWeightsNoNormalize.put(tag.getName(), (double) tag.getPosts().size() / postCount);
+            tagWeightsNoNormalize.put(tag.getKey(), (double) tag.getValue() / acceptedPostCount);
         }
 
         double normalizedCoefficient = 1 / tagWeightsNoNormalize.values()
@@ -52,11 +105,29 @@ public class TagService {
         return new TagResponse(tagWeightsToTagDTO(tagWeightsNormalize));
     }
 
-    private boolean tagIsContainString(Tag tag, String str) {
-        if (tag.getName().length() < str.length()) {
+    private void applyPost(PostSnapshot post, int delta) {
+        postCount += delta;
+        for (String tag : post.getTags()) {
+            int newCount = tagPostCounts.getOrDefault(tag, 0) + delta;
+            if (newCount > 0) {
+                tagPostCounts.put(tag, newCount);
+            } else {
+                tagPostCounts.remove(tag);
+            }
+            tagTrie.setCount(tag, Math.max(newCount, 0));
+        }
+    }
+
+    private Map<String, Integer> loadTagPostCounts() {
+        return tagRepository.countAllActiveAndAcceptedPostsByTag().stream()
+                .collect(Collectors.toMap(TagPostCount::getName, tag -> (int) tag.getPostCount()));
+    }
+
+    private boolean tagIsContainString(String tagName, String str) {
+        if (tagName.length() < str.length()) {
             return false;
         }
-        return str.equals(tag.getName().substring(0, str.length()));
+        return str.equals(tagName.substring(0, str.length()));
     }
 
     private int getCountAcceptedPost() {
@@ -68,4 +139,4 @@ public class TagService {
         tagWeightsNormalize.forEach((k, v) -> result.add(new TagDTO(k, v)));
         return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package main.service;
+
+import java.util.*;
+
+final class TagTrie {
+
+    private static final Comparator<Node> BY_COUNT = Comparator.<Node>comparingInt(node -> node.count).reversed()
+            .thenComparing(node -> node.name);
+
+    private final int topSize;
+    private Node root = new Node();
+
+    TagTrie(int topSize) {
+        this.topSize = topSize;
+    }
+
+    void clear() {
+        root = new Node();
+    }
+
+    void setCount(String name, int count) {
+        Node[] path = new Node[name.length() + 1];
+        Node node = root;
+        path[0] = node;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.getOrAddChild(name.charAt(i));
+            path[i + 1] = node;
+        }
+        node.name = name;
+        node.count = count;
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i].updateTop(topSize);
+        }
+    }
+
+    Map<String, Integer> findTop(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.getChild(prefix.charAt(i));
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        if (node != null) {
+            for (int i = 0; i < node.topCount; i++) {
+                result.put(node.top[i].name, node.top[i].count);
+            }
+        }
+        return result;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Node[] top = new Node[0];
+        private int topCount;
+        private String name;
+        private int count;
+
+        private Node getChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node getOrAddChild(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            index = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            newKeys[index] = key;
+            newChildren[index] = new Node();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[index];
+        }
+
+        private void updateTop(int topSize) {
+            List<Node> candidates = new ArrayList<>();
+            if (name != null && count > 0) {
+                candidates.add(this);
+            }
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top).subList(0, child.topCount));
+            }
+            candidates.sort(BY_COUNT);
+            topCount = Math.min(topSize, candidates.size());
+            top = candidates.subList(0, topCount).toArray(new Node[0]);
+        }
+    }
+}
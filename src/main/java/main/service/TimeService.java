@@ -16,6 +16,10 @@ public class TimeService {
         return LocalDateTime.now().atZone(ZoneId.systemDefault()).toInstant().getEpochSecond();
     }
 
+    public LocalDateTime getLocalDateTimeFromTimestamp(long timestamp) {
+        return Instant.ofEpochSecond(timestamp).atZone(ZoneId.systemDefault()).toLocalDateTime();
+    }
+
     public LocalDateTime checkDateCreationPost(long time) {
         LocalDateTime localDateTime = Instant.ofEpochSecond(time).atZone(ZoneId.systemDefault()).toLocalDateTime();
         if (localDateTime.isBefore(LocalDateTime.now())) {
@@ -0,0 +1,238 @@
+package main.service;
+
+import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.event.PostSnapshot;
+import main.model.projections.PostTagName;
+import main.model.projections.PostTitle;
+import main.model.repositories.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+@Service
+public class TrigramIndexService {
+
+    private static final int INITIAL_POSTINGS_SIZE = 4;
+
+    private final PostRepository postRepository;
+    private final BlogConfig config;
+    private final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    private int[] trigramCounts = new int[1024];
+    private volatile boolean ready;
+
+    @Autowired
+    public TrigramIndexService(PostRepository postRepository, BlogConfig config) {
+        this.postRepository = postRepository;
+        this.config = config;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStart() {
+        if (config.isTrigramIndexEnabled()) {
+            indexExecutor.execute(this::build);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostEvent(PostEvent event) {
+        if (!config.isTrigramIndexEnabled() || (!event.isVisibleBefore() && !event.isVisibleAfter())) {
+            return;
+        }
+        indexExecutor.execute(() -> {
+            lock.writeLock().lock();
+            try {
+                if (event.isVisibleBefore()) {
+                    remove(event.getPostId(), trigrams(event.getBefore()));
+                }
+                if (event.isVisibleAfter()) {
+                    add(event.getPostId(), trigrams(event.getAfter()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public Optional<Page<Integer>> search(String query, int page, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        Set<Long> queryTrigrams = trigrams(query);
+        PageRequest pageRequest = PageRequest.of(page, limit);
+        if (queryTrigrams.isEmpty()) {
+            return Optional.of(new PageImpl<>(new ArrayList<>(), pageRequest, 0));
+        }
+        Map<Integer, Integer> commonCounts = new HashMap<>();
+        Map<Integer, Integer> postTrigramCounts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (long trigram : queryTrigrams) {
+                Postings trigramPostings = postings.get(trigram);
+                if (trigramPostings == null) {
+                    continue;
+                }
+                for (int i = 0; i < trigramPostings.size; i++) {
+                    commonCounts.merge(trigramPostings.ids[i], 1, Integer::sum);
+                }
+            }
+            commonCounts.keySet().forEach(id -> postTrigramCounts.put(id, trigramCounts[id]));
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<Integer, Double> similarities = new HashMap<>();
+        commonCounts.forEach((id, common) -> {
+            double similarity = (double) common / queryTrigrams.size();
+            if (similarity >= config.getTrigramIndexMinSimilarity()) {
+                similarities.put(id, similarity);
+            }
+        });
+        List<Integer> rankedIds = similarities.keySet().stream()
+                .sorted(Comparator.<Integer, Double>comparing(similarities::get).reversed()
+                        .thenComparing(postTrigramCounts::get)
+                        .thenComparing(Comparator.reverseOrder()))
+                .limit(config.getTrigramIndexMaxCandidates())
+                .collect(Collectors.toList());
+        int fromIndex = (int) Math.min(pageRequest.getOffset(), rankedIds.size());
+        int toIndex = Math.min(fromIndex + limit, rankedIds.size());
+        return Optional.of(new PageImpl<>(new ArrayList<>(rankedIds.subList(fromIndex, toIndex)),
+                pageRequest, rankedIds.size()));
+    }
+
+    @PreDestroy
+    public void close() {
+        indexExecutor.shutdownNow();
+    }
+
+    private void build() {
+        try {
+            PageRequest batch = PageRequest.of(0, config.getTrigramIndexBatchSize());
+            int indexedCount = 0;
+            List<PostTitle> posts = postRepository.findAllTitles(batch, 0);
+            while (!posts.isEmpty()) {
+                Map<Integer, List<String>> tagNames = postRepository.findAllTagNamesByPostIds(
+                        posts.stream().map(PostTitle::getId).collect(Collectors.toList())).stream()
+                        .collect(Collectors.groupingBy(PostTagName::getPostId,
+                                Collectors.mapping(PostTagName::getName, Collectors.toList())));
+                lock.writeLock().lock();
+                try {
+                    for (PostTitle post : posts) {
+                        add(post.getId(), trigrams(post.getTitle(),
+                                tagNames.getOrDefault(post.getId(), Collections.emptyList())));
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                indexedCount += posts.size();
+                posts = postRepository.findAllTitles(batch, posts.get(posts.size() - 1).getId());
+            }
+            lock.writeLock().lock();
+            try {
+                postings.values().forEach(Postings::trim);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            BlogConfig.LOGGER.info(BlogConfig.MARKER_BLOG_INFO, "Триграммный индекс построен, постов: " + indexedCount +
+                    ", триграмм: " + postings.size());
+        } catch (Exception ex) {
+            BlogConfig.LOGGER.error("Ошибка построения триграммного индекса: " + ex.getMessage());
+        }
+    }
+
+    private void add(int postId, Set<Long> postTrigrams) {
+        if (postId >= trigramCounts.length) {
+            trigramCounts = Arrays.copyOf(trigramCounts, Math.max(postId + 1, trigramCounts.length * 2));
+        }
+        trigramCounts[postId] = postTrigrams.size();
+        for (long trigram : postTrigrams) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(postId);
+        }
+    }
+
+    private void remove(int postId, Set<Long> postTrigrams) {
+        if (postId < trigramCounts.length) {
+            trigramCounts[postId] = 0;
+        }
+        for (long trigram : postTrigrams) {
+            Postings trigramPostings = postings.get(trigram);
+            if (trigramPostings != null && trigramPostings.remove(postId) && trigramPostings.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    private static Set<Long> trigrams(PostSnapshot post) {
+        return trigrams(post.getTitle(), post.getTags());
+    }
+
+    private static Set<Long> trigrams(String title, Collection<String> tags) {
+        Set<Long> result = trigrams(title);
+        tags.forEach(tag -> result.addAll(trigrams(tag)));
+        return result;
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> result = new HashSet<>();
+        String normalized = text.toLowerCase().replace('ё', 'е').replaceAll("[^\\p{L}\\p{Nd}]+", " ").trim();
+        if (normalized.isEmpty()) {
+            return result;
+        }
+        for (String word : normalized.split(" ")) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                result.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            }
+        }
+        return result;
+    }
+
+    private static class Postings {
+        private int[] ids = new int[INITIAL_POSTINGS_SIZE];
+        private int size;
+
+        private void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        private boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        private void trim() {
+            ids = Arrays.copyOf(ids, size);
+        }
+    }
+}
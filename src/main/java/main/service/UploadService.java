@@ -0,0 +1,126 @@
+package main.service;
+
+import lombok.AllArgsConstructor;
+import main.api.request.ProfileRequest;
+import main.api.response.ResultResponse;
+import main.config.BlogConfig;
+import main.exception.ResultIllegalParameterException;
+import org.apache.tomcat.util.http.fileupload.FileItemIterator;
+import org.apache.tomcat.util.http.fileupload.FileItemStream;
+import org.apache.tomcat.util.http.fileupload.FileUploadException;
+import org.apache.tomcat.util.http.fileupload.impl.SizeException;
+import org.apache.tomcat.util.http.fileupload.servlet.ServletFileUpload;
+import org.apache.tomcat.util.http.fileupload.util.Streams;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+@Service
+@AllArgsConstructor
+public class UploadService {
+
+    private static final String IMAGE_PART_NAME = "image";
+    private static final String PHOTO_PART_NAME = "photo";
+    private static final long FORM_FIELDS_MAX_SIZE = 64 * 1024;
+    @Autowired
+    private final ImageService imageService;
+    @Autowired
+    private final UserService userService;
+
+    public String loadImage(HttpServletRequest request) throws IOException {
+        try {
+            FileItemIterator iterator = createItemIterator(request);
+            while (iterator.hasNext()) {
+                FileItemStream item = iterator.next();
+                if (!item.isFormField() && IMAGE_PART_NAME.equals(item.getFieldName())) {
+                    try (InputStream inputStream = item.openStream()) {
+                        return imageService.loadImage(inputStream);
+                    }
+                }
+            }
+        } catch (FileUploadException | IOException ex) {
+            throw handleUploadException(ex, BlogConfig.ERROR_IMAGE_FRONTEND_NAME,
+                    BlogConfig.ERROR_FAILED_SIZE_IMAGE_FRONTEND_MSG);
+        }
+        throw new ResultIllegalParameterException(BlogConfig.ERROR_IMAGE_FRONTEND_NAME,
+                BlogConfig.ERROR_FAILED_UPLOAD_IMAGE_FRONTEND_MSG);
+    }
+
+    public ResultResponse editProfile(HttpServletRequest request) throws IOException {
+        ProfileRequest profileRequest = new ProfileRequest();
+        BufferedImage photo = null;
+        try {
+            FileItemIterator iterator = createItemIterator(request);
+            while (iterator.hasNext()) {
+                FileItemStream item = iterator.next();
+                try (InputStream inputStream = item.openStream()) {
+                    if (!item.isFormField()) {
+                        if (PHOTO_PART_NAME.equals(item.getFieldName()) &&
+                                item.getName() != null && !item.getName().isEmpty()) {
+                            photo = imageService.readAvatarImage(inputStream);
+                        }
+                        continue;
+                    }
+                    setProfileField(profileRequest, item.getFieldName(),
+                            Streams.asString(inputStream, StandardCharsets.UTF_8.name()));
+                }
+            }
+        } catch (FileUploadException | IOException ex) {
+            throw handleUploadException(ex, BlogConfig.ERROR_PHOTO_FRONTEND_NAME,
+                    BlogConfig.ERROR_FAILED_SIZE_PHOTO_FRONTEND_MSG);
+        }
+        if (photo == null) {
+            return userService.editProfile(profileRequest);
+        }
+        return userService.editProfile(photo, profileRequest);
+    }
+
+    private FileItemIterator createItemIterator(HttpServletRequest request) throws FileUploadException, IOException {
+        ServletFileUpload upload = new ServletFileUpload();
+        long imageMaxSize = imageService.getImageMaxSizeBytes();
+        upload.setFileSizeMax(imageMaxSize);
+        upload.setSizeMax(imageMaxSize + FORM_FIELDS_MAX_SIZE);
+        upload.setHeaderEncoding(StandardCharsets.UTF_8.name());
+        return upload.getItemIterator(request);
+    }
+
+    private void setProfileField(ProfileRequest profileRequest, String name, String value) {
+        switch (name) {
+            case "name":
+                profileRequest.setName(value);
+                break;
+            case "email":
+                profileRequest.setEmail(value);
+                break;
+            case "password":
+                profileRequest.setPassword(value);
+                break;
+            case "removePhoto":
+                try {
+                    profileRequest.setRemovePhoto(Integer.parseInt(value.trim()));
+                } catch (NumberFormatException ex) {
+                    profileRequest.setRemovePhoto(0);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private IOException handleUploadException(Exception ex, String typeErrorMsg, String sizeErrorMsg) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SizeException) {
+                BlogConfig.LOGGER.info(BlogConfig.MARKER_UNSUCCESSFUL_REQUEST,
+                        "Загрузка файла прервана, превышен допустимый размер: {}",
+                        ((SizeException) cause).getPermittedSize());
+                throw new ResultIllegalParameterException(typeErrorMsg, sizeErrorMsg);
+            }
+        }
+        return ex instanceof IOException ? (IOException) ex : new IOException(ex.getMessage(), ex);
+    }
+}
@@ -18,9 +18,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import javax.mail.MessagingException;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.security.Principal;
 import java.time.LocalDateTime;
@@ -86,7 +86,7 @@ public class UserService {
         return new ResultResponse(true);
     }
 
-    public ResultResponse editProfile(MultipartFile photo, ProfileRequest profileRequest) throws IOException {
+    public ResultResponse editProfile(BufferedImage photo, ProfileRequest profileRequest) throws IOException {
         ResultResponse resultResponse = editProfile(profileRequest);
         User user = getLoggedUser();
         String avatarPath = imageService.SaveResizerImage(photo, String.valueOf(user.getId()));
@@ -0,0 +1,204 @@
+package main.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import main.config.BlogConfig;
+import main.event.ViewsFlushedEvent;
+import main.model.User;
+import main.model.repositories.PostViewSketchRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class ViewCountService {
+
+    private static final String SQL_ADD_VIEW_COUNT = "UPDATE posts SET view_count = view_count + ? WHERE id = ?";
+    private static final String SQL_SAVE_VIEW_SKETCH = "INSERT INTO post_view_sketches (post_id, sketch, unique_count) " +
+            "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE sketch = VALUES(sketch), unique_count = VALUES(unique_count)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PostViewSketchRepository postViewSketchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Integer, Integer> pendingViews = new ConcurrentHashMap<>();
+    private final Map<Integer, HyperLogLog> pendingReaders = new ConcurrentHashMap<>();
+    private final Cache<Integer, ReaderSketch> readerSketches;
+
+    @Autowired
+    public ViewCountService(JdbcTemplate jdbcTemplate, PostViewSketchRepository postViewSketchRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager, BlogConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.postViewSketchRepository = postViewSketchRepository;
+        this.eventPublisher = eventPublisher;
+        readerSketches = Caffeine.newBuilder()
+                .maximumSize(config.getPostViewSketchCacheSize())
+                .build();
+    }
+
+    public void addView(int postId, String readerKey) {
+        pendingViews.merge(postId, 1, Integer::sum);
+        long readerHash = HyperLogLog.hash(readerKey);
+        ReaderSketch readerSketch = readerSketches.get(postId, this::loadReaderSketch);
+        boolean changed;
+        synchronized (readerSketch) {
+            changed = readerSketch.getSketch().offer(readerHash);
+        }
+        if (changed) {
+            pendingReaders.compute(postId, (id, readers) -> {
+                HyperLogLog sketch = readers == null ? new HyperLogLog() : readers;
+                sketch.offer(readerHash);
+                return sketch;
+            });
+        }
+    }
+
+    public int getPendingViews(int postId) {
+        return pendingViews.getOrDefault(postId, 0);
+    }
+
+    public int getUniqueViews(int postId) {
+        ReaderSketch readerSketch = readerSketches.get(postId, this::loadReaderSketch);
+        synchronized (readerSketch) {
+            return readerSketch.getSketch().estimate();
+        }
+    }
+
+    public int countUniqueViewsAllPosts() {
+        return postViewSketchRepository.countUniqueViewsAllPosts().orElse(0);
+    }
+
+    public int countUniqueViewsAllPostsByUser(User user) {
+        return postViewSketchRepository.countUniqueViewsAllPostsByUser(user).orElse(0);
+    }
+
+    @Scheduled(fixedDelayString = "${config.post-view-flush-interval}")
+    public void flushScheduled() {
+        flush();
+    }
+
+    @PreDestroy
+    public synchronized void flush() {
+        Map<Integer, Integer> views = flushViews();
+        Map<Integer, Integer> uniqueViews = flushReaders();
+        if (!views.isEmpty() || !uniqueViews.isEmpty()) {
+            eventPublisher.publishEvent(new ViewsFlushedEvent(views, uniqueViews));
+        }
+    }
+
+    private Map<Integer, Integer> flushViews() {
+        Map<Integer, Integer> flushed = new HashMap<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (Integer postId : new ArrayList<>(pendingViews.keySet())) {
+            Integer delta = pendingViews.remove(postId);
+            if (delta != null && delta > 0) {
+                batch.add(new Object[]{delta, postId});
+            }
+        }
+        if (batch.isEmpty()) {
+            return flushed;
+        }
+        try {
+            transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(SQL_ADD_VIEW_COUNT, batch));
+            batch.forEach(args -> flushed.put((Integer) args[1], (Integer) args[0]));
+        } catch (DataAccessException | TransactionException ex) {
+            batch.forEach(args -> pendingViews.merge((Integer) args[1], (Integer) args[0], Integer::sum));
+            BlogConfig.LOGGER.error("Ошибка сохранения просмотров постов: " + ex.getMessage());
+        }
+        return flushed;
+    }
+
+    private Map<Integer, Integer> flushReaders() {
+        Map<Integer, Integer> flushed = new HashMap<>();
+        Map<Integer, HyperLogLog> flushing = new HashMap<>();
+        for (Integer postId : new ArrayList<>(pendingReaders.keySet())) {
+            HyperLogLog pending = pendingReaders.remove(postId);
+            if (pending != null) {
+                flushing.put(postId, pending);
+            }
+        }
+        if (flushing.isEmpty()) {
+            return flushed;
+        }
+        Map<Integer, ReaderSketch> targets = new HashMap<>(readerSketches.getAllPresent(flushing.keySet()));
+        List<Integer> missingIds = new ArrayList<>(flushing.keySet());
+        missingIds.removeAll(targets.keySet());
+        Map<Integer, Integer> estimates = new HashMap<>();
+        List<Object[]> batch = new ArrayList<>();
+        try {
+            if (!missingIds.isEmpty()) {
+                postViewSketchRepository.findAllById(missingIds).forEach(persisted -> targets.put(persisted.getPostId(),
+                        new ReaderSketch(HyperLogLog.fromBytes(persisted.getSketch()), persisted.getUniqueCount())));
+            }
+            flushing.forEach((postId, pending) -> {
+                ReaderSketch target = targets.computeIfAbsent(postId, id -> new ReaderSketch(new HyperLogLog(), 0));
+                synchronized (target) {
+                    target.getSketch().merge(pending);
+                    int estimate = target.getSketch().estimate();
+                    estimates.put(postId, estimate);
+                    batch.add(new Object[]{postId, target.getSketch().toBytes(), estimate});
+                }
+            });
+            transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(SQL_SAVE_VIEW_SKETCH, batch));
+        } catch (DataAccessException | TransactionException ex) {
+            flushing.forEach((postId, pending) -> pendingReaders.merge(postId, pending, (current, failed) -> {
+                current.merge(failed);
+                return current;
+            }));
+            BlogConfig.LOGGER.error("Ошибка сохранения уникальных просмотров постов: " + ex.getMessage());
+            return flushed;
+        }
+        targets.forEach((postId, target) -> {
+            synchronized (target) {
+                flushed.put(postId, estimates.get(postId) - target.getStoredUniqueCount());
+                target.setStoredUniqueCount(estimates.get(postId));
+            }
+            readerSketches.asMap().merge(postId, target, (current, flushedTarget) -> {
+                synchronized (current) {
+                    current.getSketch().merge(flushedTarget.getSketch());
+                    current.setStoredUniqueCount(flushedTarget.getStoredUniqueCount());
+                }
+                return current;
+            });
+        });
+        return flushed;
+    }
+
+    private ReaderSketch loadReaderSketch(int postId) {
+        ReaderSketch readerSketch = postViewSketchRepository.findById(postId)
+                .map(persisted -> new ReaderSketch(HyperLogLog.fromBytes(persisted.getSketch()),
+                        persisted.getUniqueCount()))
+                .orElseGet(() -> new ReaderSketch(new HyperLogLog(), 0));
+        HyperLogLog pending = pendingReaders.get(postId);
+        if (pending != null) {
+            readerSketch.getSketch().merge(pending);
+        }
+        return readerSketch;
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    private static class ReaderSketch {
+        private final HyperLogLog sketch;
+        private int storedUniqueCount;
+    }
+}
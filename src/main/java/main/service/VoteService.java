@@ -4,12 +4,18 @@ import lombok.AllArgsConstructor;
 import main.api.request.VoteRequest;
 import main.api.response.ResultResponse;
 import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.event.VoteEvent;
 import main.model.Post;
 import main.model.PostVote;
 import main.model.User;
+import main.model.enums.PostEventType;
+import main.model.repositories.PostRepository;
 import main.model.repositories.PostVoteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 
@@ -19,9 +25,13 @@ public class VoteService {
     @Autowired
     private final PostVoteRepository postVoteRepository;
     @Autowired
+    private final PostRepository postRepository;
+    @Autowired
     private final PostService postService;
     @Autowired
     private final UserService userService;
+    @Autowired
+    private final ApplicationEventPublisher eventPublisher;
 
     public int countAllLikesByUser(User user) {
         return postVoteRepository.countByValueAndUser(BlogConfig.POST_LIKE, user).orElse(0);
@@ -39,10 +49,12 @@ public class VoteService {
         return postVoteRepository.countByValue(BlogConfig.POST_DISLIKE).orElse(0);
     }
 
+    @Transactional
     public ResultResponse likePost(VoteRequest voteRequest) {
         return new ResultResponse(setPostVote(BlogConfig.POST_LIKE, voteRequest.getPostId()));
     }
 
+    @Transactional
     public ResultResponse dislikePost(VoteRequest voteRequest) {
         return new ResultResponse(setPostVote(BlogConfig.POST_DISLIKE, voteRequest.getPostId()));
     }
@@ -51,7 +63,8 @@ public class VoteService {
         Post post = postService.getActiveAndAcceptedById(postID);
         User user = userService.getLoggedUser();
         PostVote postVote = postVoteRepository.findByUserAndPost(user, post).orElse(new PostVote());
-        if (postVote.getValue() == value) {
+        byte previousValue = postVote.getValue();
+        if (previousValue == value) {
             return false;
         }
         postVote.setPost(post);
@@ -59,6 +72,15 @@ public class VoteService {
         postVote.setTime(LocalDateTime.now());
         postVote.setValue(value);
         postVoteRepository.save(postVote);
+        postRepository.updateVoteCounters(post.getId(),
+                voteCountDelta(BlogConfig.POST_LIKE, previousValue, value),
+                voteCountDelta(BlogConfig.POST_DISLIKE, previousValue, value));
+        eventPublisher.publishEvent(new PostEvent(PostEventType.VOTED, post.getId()));
+        eventPublisher.publishEvent(new VoteEvent(post.getId(), user.getId(), previousValue, value));
         return true;
     }
+
+    private int voteCountDelta(byte counterValue, byte previousValue, byte newValue) {
+        return (newValue == counterValue ? 1 : 0) - (previousValue == counterValue ? 1 : 0);
+    }
 }
@@ -0,0 +1,64 @@
+package main.benchmark;
+
+import com.github.cage.Cage;
+import com.github.cage.GCage;
+import main.config.BlogConfig;
+import main.service.CaptchaRenderer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CaptchaRenderBenchmark {
+
+    private static final String CODE = "xajefihiz";
+
+    private BlogConfig config;
+    private Cage cage;
+    private CaptchaRenderer captchaRenderer;
+
+    @Setup
+    public void setUp() {
+        config = new BlogConfig();
+        config.setCaptchaHeight(35);
+        config.setCaptchaWight(100);
+        config.setCaptchaFormat("png");
+        cage = new GCage();
+        captchaRenderer = new CaptchaRenderer(config);
+    }
+
+    @Benchmark
+    public byte[] scaledInstance() throws IOException {
+        BufferedImage image = cage.drawImage(CODE);
+        BufferedImage outputImage = new BufferedImage(config.getCaptchaWight(), config.getCaptchaHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        Image resultingImage = image.getScaledInstance(config.getCaptchaWight(), config.getCaptchaHeight(),
+                Image.SCALE_DEFAULT);
+        outputImage.getGraphics().drawImage(resultingImage, 0, 0, null);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(outputImage, config.getCaptchaFormat(), output);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] directRender() {
+        return captchaRenderer.render(CODE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CaptchaRenderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
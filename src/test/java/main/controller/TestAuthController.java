@@ -9,10 +9,9 @@ import main.api.request.PassRestoreRequest;
 import main.api.response.ResultResponse;
 import main.api.response.UserResultResponse;
 import main.config.BlogConfig;
-import main.model.CaptchaCode;
 import main.model.User;
-import main.model.repositories.CaptchaCodeRepository;
 import main.model.repositories.UserRepository;
+import main.service.CaptchaService;
 import main.service.UserService;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
@@ -32,8 +31,6 @@ import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.web.context.WebApplicationContext;
 
-import java.util.Optional;
-
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -47,10 +44,8 @@ import static org.springframework.test.web.servlet.setup.SharedHttpSessionConfig
 @Sql(value = {"/insert-data-auth.sql"}, executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
 @Sql(value = {"/delete-all.sql"}, executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
 public class TestAuthController {
-    private static final int TEST_ID_CAPTCHA = 10;
     private static final String BAD_CAPTCHA = "badCaptcha";
     private static final String TEST_CAPTCHA = "testCaptcha";
-    private static final String TEST_CAPTCHA_SECRET = "vfbPFX9eVuUIVdJR";
     private static final String TEST_GOOD_EMAIL = "test-email@mail.ru";
     private static final String TEST_REGISTER_EMAIL = "test@mail.ru";
     private static final String TEST_BAD_EMAIL = "bad_test@mail.ru";
@@ -68,7 +63,7 @@ public class TestAuthController {
     @Autowired
     private WebApplicationContext wac;
     @Autowired
-    private CaptchaCodeRepository captchaCodeRepository;
+    private CaptchaService captchaService;
     @Autowired
     private UserRepository userRepository;
     @Autowired
@@ -94,9 +89,9 @@ public class TestAuthController {
 
     @Test
     public void testRegisterUser() throws Exception {
-        CaptchaCode captchaCode = getTestCaptchaCode();
+        String captchaSecret = captchaService.createSecretCode(TEST_CAPTCHA);
         AddUserRequest addUserRequest = new AddUserRequest(TEST_GOOD_EMAIL, TEST_GOOD_PASS,
-                TEST_GOOD_NAME, captchaCode.getCode(), captchaCode.getSecretCode());
+                TEST_GOOD_NAME, TEST_CAPTCHA, captchaSecret);
 
         ObjectMapper mapper = new ObjectMapper();
         RequestBuilder requestBuilder = post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).
@@ -110,9 +105,9 @@ public class TestAuthController {
 
     @Test
     public void testRegisterUserParameterExceptionEmail() throws Exception {
-        CaptchaCode captchaCode = getTestCaptchaCode();
+        String captchaSecret = captchaService.createSecretCode(TEST_CAPTCHA);
         AddUserRequest addUserRequest = new AddUserRequest(TEST_REGISTER_EMAIL, TEST_GOOD_PASS,
-                TEST_GOOD_NAME, captchaCode.getCode(), captchaCode.getSecretCode());
+                TEST_GOOD_NAME, TEST_CAPTCHA, captchaSecret);
 
         ObjectMapper mapper = new ObjectMapper();
         RequestBuilder requestBuilder = post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).
@@ -128,9 +123,9 @@ public class TestAuthController {
 
     @Test
     public void testRegisterUserParameterExceptionCaptcha() throws Exception {
-        CaptchaCode captchaCode = getTestCaptchaCode();
+        String captchaSecret = captchaService.createSecretCode(TEST_CAPTCHA);
         AddUserRequest addUserRequest = new AddUserRequest(TEST_GOOD_EMAIL, TEST_GOOD_PASS,
-                TEST_GOOD_NAME, BAD_CAPTCHA, captchaCode.getSecretCode());
+                TEST_GOOD_NAME, BAD_CAPTCHA, captchaSecret);
 
         ObjectMapper mapper = new ObjectMapper();
         RequestBuilder requestBuilder = post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).
@@ -146,9 +141,9 @@ public class TestAuthController {
 
     @Test
     public void testRegisterUserParameterExceptionName() throws Exception {
-        CaptchaCode captchaCode = getTestCaptchaCode();
+        String captchaSecret = captchaService.createSecretCode(TEST_CAPTCHA);
         AddUserRequest addUserRequest = new AddUserRequest(TEST_GOOD_EMAIL, TEST_GOOD_PASS,
-                TEST_BAD_NAME, captchaCode.getCode(), captchaCode.getSecretCode());
+                TEST_BAD_NAME, TEST_CAPTCHA, captchaSecret);
 
         ObjectMapper mapper = new ObjectMapper();
         RequestBuilder requestBuilder = post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).
@@ -164,9 +159,9 @@ public class TestAuthController {
 
     @Test
     public void testRegisterUserParameterExceptionPass() throws Exception {
-        CaptchaCode captchaCode = getTestCaptchaCode();
+        String captchaSecret = captchaService.createSecretCode(TEST_CAPTCHA);
         AddUserRequest addUserRequest = new AddUserRequest(TEST_GOOD_EMAIL, TEST_BAD_PASS,
-                TEST_GOOD_NAME, captchaCode.getCode(), captchaCode.getSecretCode());
+                TEST_GOOD_NAME, TEST_CAPTCHA, captchaSecret);
 
         ObjectMapper mapper = new ObjectMapper();
         RequestBuilder requestBuilder = post("/api/auth/register").contentType(MediaType.APPLICATION_JSON).
@@ -245,7 +240,8 @@ public class TestAuthController {
 
     @Test
     public void testChangePassword() throws Exception {
-        PassRecoveryRequest request = new PassRecoveryRequest(HASH, NEW_PASS, TEST_CAPTCHA, TEST_CAPTCHA_SECRET);
+        String captchaSecret = captchaService.createSecretCode(TEST_CAPTCHA);
+        PassRecoveryRequest request = new PassRecoveryRequest(HASH, NEW_PASS, TEST_CAPTCHA, captchaSecret);
         ResultResponse actualResponse = new ResultResponse(true);
 
         ObjectMapper mapper = new ObjectMapper();
@@ -262,7 +258,8 @@ public class TestAuthController {
 
     @Test
     public void testChangePasswordBadCode() throws Exception {
-        PassRecoveryRequest request = new PassRecoveryRequest(BAD_HASH, NEW_PASS, TEST_CAPTCHA, TEST_CAPTCHA_SECRET);
+        String captchaSecret = captchaService.createSecretCode(TEST_CAPTCHA);
+        PassRecoveryRequest request = new PassRecoveryRequest(BAD_HASH, NEW_PASS, TEST_CAPTCHA, captchaSecret);
         ErrorDTO actualResponse = new ErrorDTO(false, BlogConfig.ERROR_CODE_FRONTEND_NAME,
                 BlogConfig.ERROR_LINK_IS_OUTDATED_BEFORE + config.getMailRestorePasswordSubAddress() +
                         BlogConfig.ERROR_LINK_IS_OUTDATED_AFTER);
@@ -280,7 +277,8 @@ public class TestAuthController {
 
     @Test
     public void testChangePasswordBadCaptcha() throws Exception {
-        PassRecoveryRequest request = new PassRecoveryRequest(HASH, NEW_PASS, BAD_CAPTCHA, TEST_CAPTCHA_SECRET);
+        String captchaSecret = captchaService.createSecretCode(TEST_CAPTCHA);
+        PassRecoveryRequest request = new PassRecoveryRequest(HASH, NEW_PASS, BAD_CAPTCHA, captchaSecret);
         ErrorDTO actualResponse = new ErrorDTO(false, BlogConfig.ERROR_CAPTCHA_FRONTEND_NAME,
                 BlogConfig.ERROR_CAPTCHA_FRONTEND_MSG);
 
@@ -295,11 +293,6 @@ public class TestAuthController {
                         .json(mapper.writeValueAsString(actualResponse)));
     }
 
-    private CaptchaCode getTestCaptchaCode() {
-        Optional<CaptchaCode> captchaCodeOptional = captchaCodeRepository.findById(TEST_ID_CAPTCHA);
-        return captchaCodeOptional.orElse(null);
-    }
-
     private void userLogin(String username, String password) throws Exception {
         LoginRequest request = new LoginRequest(username, password);
         userRepository.findByEmailIgnoreCase(username).orElseThrow(null);
@@ -12,6 +12,7 @@ import main.config.BlogConfig;
 import main.model.Post;
 import main.model.Tag;
 import main.model.enums.ModerationStatusType;
+import main.model.projections.PostPreview;
 import main.model.repositories.PostRepository;
 import main.model.repositories.UserRepository;
 import main.service.PostService;
@@ -43,6 +44,7 @@ import java.util.stream.Collectors;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 import static org.springframework.test.web.servlet.setup.SharedHttpSessionConfigurer.sharedHttpSession;
@@ -156,6 +158,43 @@ public class TestPostController {
                 .andExpect(content().json(actualJSONResponse));
     }
 
+    @Test
+    public void testGetPostsByCursorModeResent() throws Exception {
+        MockHttpServletRequestBuilder firstPageRequestBuilder = get("/api/post")
+                .param("limit", "3")
+                .param("mode", "recent")
+                .param("cursor", "");
+
+        String firstPage = mockMvc.perform(firstPageRequestBuilder)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.count", Matchers.is(POST_COUNT)))
+                .andExpect(jsonPath("$.posts[*].id", Matchers.contains(109, 108, 107)))
+                .andExpect(jsonPath("$.nextCursor", Matchers.notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String nextCursor = new ObjectMapper().readTree(firstPage).get("nextCursor").asText();
+
+        MockHttpServletRequestBuilder secondPageRequestBuilder = get("/api/post")
+                .param("limit", "3")
+                .param("mode", "recent")
+                .param("cursor", nextCursor);
+
+        mockMvc.perform(secondPageRequestBuilder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts[*].id", Matchers.contains(106, 105, 104)));
+    }
+
+    @Test
+    public void testGetPostsByCursorBadValue() throws Exception {
+        MockHttpServletRequestBuilder requestBuilder = get("/api/post")
+                .param("limit", "3")
+                .param("mode", "recent")
+                .param("cursor", "bad-cursor");
+
+        mockMvc.perform(requestBuilder)
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testGetPostsBySearch() throws Exception {
         String actualJSONResponse = createPostListResponseByIDs(2, 106, 107);
@@ -336,8 +375,9 @@ public class TestPostController {
                 .andExpect(status().isOk())
                 .andExpect(content().json(mapper.writeValueAsString(actualResponse)));
 
-        Post addedPost = postRepository.findAllByQuery(PageRequest.of(pageOffset, LIMIT, Sort.by("time").descending()),
-                TEST_POST_TITLE).stream().findFirst().orElseThrow();
+        PostPreview addedPostPreview = postRepository.findAllByQuery(PageRequest.of(pageOffset, LIMIT,
+                Sort.by("time").descending()), TEST_POST_TITLE).stream().findFirst().orElseThrow();
+        Post addedPost = postRepository.findById(addedPostPreview.getId()).orElseThrow();
         Assert.assertNotNull(addedPost);
         String actualPostText = addedPost.getText();
         Assert.assertEquals(TEST_POST_TEXT, actualPostText);
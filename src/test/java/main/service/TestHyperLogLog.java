@@ -0,0 +1,68 @@
+package main.service;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestHyperLogLog {
+
+    private static final double MAX_RELATIVE_ERROR = 0.05;
+
+    @Test
+    public void testEstimateSmallCardinality() {
+        HyperLogLog sketch = sketchOf(0, 100);
+        Assert.assertEquals(100, sketch.estimate(), 3);
+    }
+
+    @Test
+    public void testEstimateErrorLargeCardinality() {
+        for (int count : new int[]{10_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = sketchOf(0, count);
+            Assert.assertEquals("count " + count, count, sketch.estimate(), count * MAX_RELATIVE_ERROR);
+        }
+    }
+
+    @Test
+    public void testRepeatedReadersCountedOnce() {
+        HyperLogLog sketch = sketchOf(0, 1000);
+        int estimate = sketch.estimate();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertFalse(sketch.offer(HyperLogLog.hash("reader-" + i)));
+        }
+        Assert.assertEquals(estimate, sketch.estimate());
+    }
+
+    @Test
+    public void testMergeEstimatesUnion() {
+        HyperLogLog first = sketchOf(0, 60_000);
+        HyperLogLog second = sketchOf(40_000, 100_000);
+        Assert.assertTrue(first.merge(second));
+        Assert.assertEquals(100_000, first.estimate(), 100_000 * MAX_RELATIVE_ERROR);
+    }
+
+    @Test
+    public void testMergeIsIdempotent() {
+        HyperLogLog first = sketchOf(0, 5000);
+        HyperLogLog second = sketchOf(0, 5000);
+        int estimate = first.estimate();
+        Assert.assertFalse(first.merge(second));
+        Assert.assertEquals(estimate, first.estimate());
+    }
+
+    @Test
+    public void testSerializationRoundTrip() {
+        HyperLogLog sketch = sketchOf(0, 50_000);
+        byte[] bytes = sketch.toBytes();
+        Assert.assertEquals(HyperLogLog.SERIALIZED_SIZE, bytes.length);
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+        Assert.assertEquals(sketch.estimate(), restored.estimate());
+        Assert.assertFalse(restored.merge(sketch));
+    }
+
+    private HyperLogLog sketchOf(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = from; i < to; i++) {
+            sketch.offer(HyperLogLog.hash("reader-" + i));
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,115 @@
+package main.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import main.config.BlogConfig;
+import org.imgscalr.Scalr;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class TestImageDerivativeService {
+
+    private static final String IMAGE_NAME = "IMG-" + "a".repeat(64) + ".png";
+    private static final long GENERATION_TIMEOUT_MILLIS = 5000;
+
+    private Path imageFolder;
+    private BlogConfig config;
+    private ImageDerivativeService derivativeService;
+
+    @Before
+    public void setUp() throws IOException {
+        imageFolder = Files.createTempDirectory(Paths.get("target"), "derivatives");
+        Map<String, Integer> widths = new LinkedHashMap<>();
+        widths.put("content", 80);
+        widths.put("thumbnail", 32);
+        config = new BlogConfig();
+        config.setImagePath(imageFolder.toString());
+        config.setImageDerivativesEnabled(true);
+        config.setImageDerivativeWidths(widths);
+        config.setImageDerivativeQuality(Scalr.Method.SPEED);
+        config.setImageDerivativeThreads(1);
+        config.setImageDerivativeQueueSize(1);
+        config.setImageDerivativeDisplayWidth(80);
+        derivativeService = new ImageDerivativeService(config, new SimpleMeterRegistry());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        derivativeService.shutdown();
+        try (Stream<Path> files = Files.walk(imageFolder)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testSourceSetIsAddedToUploadedImages() {
+        String src = "/" + imageFolder + "/aa/" + IMAGE_NAME;
+        String html = "<p>text</p><img src=\"" + src + "\"><img src=\"https://example.com/outside.png\">";
+
+        String result = derivativeService.addSourceSets(html);
+
+        Assert.assertEquals("<p>text</p><img src=\"" + src + "\" srcset=\"" + src + "?size=thumbnail 32w, " +
+                src + "?size=content 80w\" sizes=\"(max-width: 80px) 100vw, 80px\">" +
+                "<img src=\"https://example.com/outside.png\">", result);
+        Assert.assertEquals(result, derivativeService.addSourceSets(result));
+    }
+
+    @Test
+    public void testTextWithoutUploadedImagesIsUnchanged() {
+        String html = "<p>text  <b>bold</b></p>\n<img src=\"https://example.com/outside.png\">";
+        Assert.assertSame(html, derivativeService.addSourceSets(html));
+        Assert.assertNull(derivativeService.addSourceSets(null));
+    }
+
+    @Test
+    public void testSourceSetVersionFollowsConfiguredWidths() {
+        String version = derivativeService.getSourceSetVersion();
+        Assert.assertEquals(version, derivativeService.getSourceSetVersion());
+
+        config.getImageDerivativeWidths().put("thumbnail", 48);
+        String changedWidths = derivativeService.getSourceSetVersion();
+        Assert.assertNotEquals(version, changedWidths);
+
+        config.setImageDerivativeDisplayWidth(60);
+        Assert.assertNotEquals(changedWidths, derivativeService.getSourceSetVersion());
+    }
+
+    @Test
+    public void testDerivativesAreGeneratedForEveryWidth() throws IOException, InterruptedException {
+        Path original = imageFolder.resolve(IMAGE_NAME);
+        ImageIO.write(new BufferedImage(60, 30, BufferedImage.TYPE_INT_RGB), "png", original.toFile());
+
+        derivativeService.generateDerivatives(IMAGE_NAME);
+        Optional<Path> content = awaitDerivative("content");
+        Optional<Path> thumbnail = awaitDerivative("thumbnail");
+
+        Assert.assertTrue(content.isPresent());
+        Assert.assertTrue(thumbnail.isPresent());
+        Assert.assertEquals(60, ImageIO.read(content.get().toFile()).getWidth());
+        Assert.assertEquals(32, ImageIO.read(thumbnail.get().toFile()).getWidth());
+        Assert.assertFalse(derivativeService.findDerivative(IMAGE_NAME, "unknown").isPresent());
+    }
+
+    private Optional<Path> awaitDerivative(String size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + GENERATION_TIMEOUT_MILLIS;
+        Optional<Path> derivative = derivativeService.findDerivative(IMAGE_NAME, size);
+        while (derivative.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            derivative = derivativeService.findDerivative(IMAGE_NAME, size);
+        }
+        return derivative;
+    }
+}
@@ -0,0 +1,161 @@
+package main.service;
+
+import main.config.BlogConfig;
+import main.model.StoredImage;
+import main.model.projections.ImageTextReferences;
+import main.model.repositories.StoredImageRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class TestImageService {
+
+    private static final String IMAGE_A = "/upload/ab/cd/ef/image-a.png";
+    private static final String IMAGE_B = "/upload/ab/cd/ef/image-b.png";
+    private static final String IMAGE_C = "/upload/ab/cd/ef/image-c.png";
+    private static final long TIME_LIVE = 3600;
+
+    private StoredImageRepository storedImageRepository;
+    private ImageDerivativeService imageDerivativeService;
+    private ImageService imageService;
+
+    @Before
+    public void setUp() {
+        BlogConfig config = new BlogConfig();
+        config.setImagePath("upload");
+        config.setImageUnreferencedTimeLive(TIME_LIVE);
+        config.setImageDecodeMaxConcurrent(1);
+        storedImageRepository = Mockito.mock(StoredImageRepository.class);
+        imageDerivativeService = Mockito.mock(ImageDerivativeService.class);
+        imageService = new ImageService(config, storedImageRepository, imageDerivativeService);
+    }
+
+    @Test
+    public void testAddedTextIncrementsReferencedImages() {
+        imageService.updateImageReferences(null, html(IMAGE_A, IMAGE_B) +
+                "<img src=\"https://example.com/outside.png\">");
+
+        Mockito.verify(storedImageRepository).updateRefCount(Set.of(IMAGE_A, IMAGE_B), 1);
+        Mockito.verify(storedImageRepository, Mockito.never()).updateRefCount(anyCollection(), eq(-1));
+    }
+
+    @Test
+    public void testEditedTextMovesReferences() {
+        imageService.updateImageReferences(html(IMAGE_A, IMAGE_B), html(IMAGE_B, IMAGE_C));
+
+        Mockito.verify(storedImageRepository).updateRefCount(Set.of(IMAGE_C), 1);
+        Mockito.verify(storedImageRepository).updateRefCount(Set.of(IMAGE_A), -1);
+        Mockito.verifyNoMoreInteractions(storedImageRepository);
+    }
+
+    @Test
+    public void testUnchangedTextKeepsReferences() {
+        imageService.updateImageReferences(html(IMAGE_A), html(IMAGE_A));
+
+        Mockito.verifyNoInteractions(storedImageRepository);
+    }
+
+    @Test
+    public void testRemovedImagesDecrementReferences() {
+        imageService.updateImageReferences(html(IMAGE_A, IMAGE_B), "<p>text</p>");
+
+        Mockito.verify(storedImageRepository).updateRefCount(Set.of(IMAGE_A, IMAGE_B), -1);
+        Mockito.verify(storedImageRepository, Mockito.never()).updateRefCount(anyCollection(), eq(1));
+    }
+
+    @Test
+    public void testCleanupUsesTimeLiveThreshold() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(TIME_LIVE);
+        imageService.removeUnreferencedImages();
+        LocalDateTime after = LocalDateTime.now().minusSeconds(TIME_LIVE);
+
+        ArgumentCaptor<LocalDateTime> threshold = ArgumentCaptor.forClass(LocalDateTime.class);
+        Mockito.verify(storedImageRepository).findAllUnreferenced(any(), threshold.capture());
+        Assert.assertFalse(threshold.getValue().isBefore(before));
+        Assert.assertFalse(threshold.getValue().isAfter(after));
+    }
+
+    @Test
+    public void testCleanupRemovesOnlyExpiredUnreferencedImages() {
+        StoredImage expired = storedImage("a", IMAGE_A, 0, LocalDateTime.now().minusSeconds(TIME_LIVE * 2));
+        StoredImage fresh = storedImage("b", IMAGE_B, 0, LocalDateTime.now());
+        StoredImage referenced = storedImage("c", IMAGE_C, 1, LocalDateTime.now().minusSeconds(TIME_LIVE * 2));
+        mockCleanupCandidates(expired, fresh, referenced);
+
+        imageService.removeUnreferencedImages();
+
+        Mockito.verify(storedImageRepository).delete(expired);
+        Mockito.verify(imageDerivativeService).removeDerivatives(IMAGE_A);
+        Mockito.verify(storedImageRepository, Mockito.never()).delete(fresh);
+        Mockito.verify(storedImageRepository, Mockito.never()).delete(referenced);
+    }
+
+    @Test
+    public void testCleanupKeepsImageStillUsedInText() {
+        StoredImage inPost = storedImage("a", IMAGE_A, 0, LocalDateTime.now().minusSeconds(TIME_LIVE * 2));
+        StoredImage inComment = storedImage("b", IMAGE_B, 0, LocalDateTime.now().minusSeconds(TIME_LIVE * 2));
+        mockCleanupCandidates(inPost, inComment);
+        Mockito.when(storedImageRepository.countTextReferences(anyCollection())).thenReturn(List.of(
+                textReferences("a", 2), textReferences("b", 1)));
+
+        imageService.removeUnreferencedImages();
+
+        Mockito.verify(storedImageRepository, Mockito.times(1)).countTextReferences(anyCollection());
+        Mockito.verify(storedImageRepository, Mockito.never()).delete(any());
+        Mockito.verify(imageDerivativeService, Mockito.never()).removeDerivatives(anyString());
+        Mockito.verify(storedImageRepository).setRefCount(IMAGE_A, 2);
+        Mockito.verify(storedImageRepository).setRefCount(IMAGE_B, 1);
+    }
+
+    private void mockCleanupCandidates(StoredImage... images) {
+        Mockito.when(storedImageRepository.findAllUnreferenced(any(), any()))
+                .thenReturn(List.of(images), Collections.emptyList());
+        for (StoredImage image : images) {
+            Mockito.when(storedImageRepository.findById(image.getHash())).thenReturn(Optional.of(image));
+        }
+    }
+
+    private static ImageTextReferences textReferences(String hash, long refCount) {
+        return new ImageTextReferences() {
+            @Override
+            public String getHash() {
+                return hash;
+            }
+
+            @Override
+            public long getRefCount() {
+                return refCount;
+            }
+        };
+    }
+
+    private static StoredImage storedImage(String hash, String path, int refCount, LocalDateTime time) {
+        StoredImage image = new StoredImage();
+        image.setHash(hash);
+        image.setPath(path);
+        image.setRefCount(refCount);
+        image.setTime(time);
+        return image;
+    }
+
+    private static String html(String... paths) {
+        StringBuilder sb = new StringBuilder("<p>text</p>");
+        for (String path : paths) {
+            sb.append("<img src=\"").append(path).append("\">");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,128 @@
+package main.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import main.api.dto.PostDTO;
+import main.api.dto.UserDTO;
+import main.api.response.PostListResponse;
+import main.config.BlogConfig;
+import main.event.PostEvent;
+import main.event.PostSnapshot;
+import main.model.enums.ModerationStatusType;
+import main.model.enums.PostEventType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class TestPostListCacheService {
+
+    private static final String MODE_RECENT = BlogConfig.POST_SORT_PARAMETER_NAME_BY_DATE_PUBLICATION_DES;
+    private static final String MODE_BEST = BlogConfig.POST_SORT_PARAMETER_NAME_BY_LIKE_DES;
+    private static final String MODE_POPULAR = BlogConfig.POST_SORT_PARAMETER_NAME_BY_COMMENT_DES;
+    private static final int CACHED_POST_ID = 1;
+    private static final int OTHER_POST_ID = 2;
+    private static final LocalDateTime POST_TIME = LocalDateTime.of(2022, 1, 1, 12, 0);
+
+    private PostListCacheService cacheService;
+    private AtomicInteger loadCount;
+
+    @Before
+    public void setUp() {
+        BlogConfig config = new BlogConfig();
+        config.setPostListCacheEnabled(true);
+        config.setPostListCacheMaxWeight(1024 * 1024);
+        cacheService = new PostListCacheService(config, new SimpleMeterRegistry());
+        loadCount = new AtomicInteger();
+    }
+
+    @Test
+    public void testPageIsCached() {
+        get(MODE_RECENT);
+        get(MODE_RECENT);
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void testModerationInvalidatesCachedPages() {
+        get(MODE_RECENT);
+        cacheService.onPostEvent(new PostEvent(PostEventType.MODERATED, OTHER_POST_ID,
+                snapshot(ModerationStatusType.NEW), snapshot(ModerationStatusType.ACCEPTED)));
+        get(MODE_RECENT);
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testModerationOfHiddenPostKeepsCachedPages() {
+        get(MODE_RECENT);
+        cacheService.onPostEvent(new PostEvent(PostEventType.MODERATED, OTHER_POST_ID,
+                snapshot(ModerationStatusType.NEW), snapshot(ModerationStatusType.DECLINED)));
+        get(MODE_RECENT);
+        Assert.assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void testVoteInvalidatesPagesWithPostAndBestPages() {
+        get(MODE_RECENT);
+        get(MODE_BEST);
+        cacheService.onPostEvent(new PostEvent(PostEventType.VOTED, OTHER_POST_ID));
+        get(MODE_RECENT);
+        get(MODE_BEST);
+        Assert.assertEquals(3, loadCount.get());
+
+        cacheService.onPostEvent(new PostEvent(PostEventType.VOTED, CACHED_POST_ID));
+        get(MODE_RECENT);
+        Assert.assertEquals(4, loadCount.get());
+    }
+
+    @Test
+    public void testCommentInvalidatesPagesWithPostAndPopularPages() {
+        get(MODE_RECENT);
+        get(MODE_POPULAR);
+        cacheService.onPostEvent(new PostEvent(PostEventType.COMMENTED, OTHER_POST_ID));
+        get(MODE_RECENT);
+        get(MODE_POPULAR);
+        Assert.assertEquals(3, loadCount.get());
+
+        cacheService.onPostEvent(new PostEvent(PostEventType.COMMENTED, CACHED_POST_ID));
+        get(MODE_RECENT);
+        Assert.assertEquals(4, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidationDuringLoadIsNotCached() {
+        cacheService.get(MODE_RECENT, 0, 10, () -> {
+            PostListResponse response = load().get();
+            cacheService.onPostEvent(new PostEvent(PostEventType.VOTED, CACHED_POST_ID));
+            return response;
+        });
+        get(MODE_RECENT);
+        Assert.assertEquals(2, loadCount.get());
+    }
+
+    private void get(String mode) {
+        cacheService.get(mode, 0, 10, load());
+    }
+
+    private Supplier<PostListResponse> load() {
+        return () -> {
+            loadCount.incrementAndGet();
+            PostDTO post = new PostDTO();
+            post.setId(CACHED_POST_ID);
+            post.setTitle("title");
+            post.setAnnounce("announce");
+            post.setUser(new UserDTO(1, "user", null));
+            List<PostDTO> posts = Collections.singletonList(post);
+            return new PostListResponse(posts.size(), posts);
+        };
+    }
+
+    private PostSnapshot snapshot(ModerationStatusType moderationStatus) {
+        return new PostSnapshot((byte) 1, moderationStatus, 1, POST_TIME, (byte) 1, "title",
+                Collections.emptySet());
+    }
+}
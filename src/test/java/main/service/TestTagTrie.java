@@ -0,0 +1,65 @@
+package main.service;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TestTagTrie {
+
+    private TagTrie tagTrie;
+
+    @Before
+    public void setUp() {
+        tagTrie = new TagTrie(2);
+        tagTrie.setCount("java", 5);
+        tagTrie.setCount("javascript", 3);
+        tagTrie.setCount("jakarta", 1);
+        tagTrie.setCount("kotlin", 4);
+    }
+
+    @Test
+    public void testFindTopReturnsMostUsedTagsForPrefix() {
+        Assert.assertEquals(List.of("java", "javascript"), names(tagTrie.findTop("ja")));
+        Assert.assertEquals(Map.of("java", 5, "javascript", 3), tagTrie.findTop("ja"));
+        Assert.assertEquals(List.of("kotlin"), names(tagTrie.findTop("k")));
+        Assert.assertEquals(Collections.emptyMap(), tagTrie.findTop("python"));
+    }
+
+    @Test
+    public void testIncrementMovesTagIntoTop() {
+        tagTrie.setCount("jakarta", 6);
+        Assert.assertEquals(List.of("jakarta", "java"), names(tagTrie.findTop("ja")));
+        Assert.assertEquals(List.of("jakarta", "java"), names(tagTrie.findTop("")));
+    }
+
+    @Test
+    public void testDecrementMovesTagOutOfTop() {
+        tagTrie.setCount("java", 2);
+        Assert.assertEquals(List.of("javascript", "java"), names(tagTrie.findTop("ja")));
+        tagTrie.setCount("javascript", 0);
+        Assert.assertEquals(List.of("java", "jakarta"), names(tagTrie.findTop("ja")));
+        Assert.assertEquals(List.of("java"), names(tagTrie.findTop("jav")));
+    }
+
+    @Test
+    public void testTagWithoutPostsIsNotSuggested() {
+        tagTrie.setCount("kotlin", 0);
+        Assert.assertEquals(Collections.emptyMap(), tagTrie.findTop("k"));
+        tagTrie.setCount("kotlin", 1);
+        Assert.assertEquals(Map.of("kotlin", 1), tagTrie.findTop("kotlin"));
+    }
+
+    @Test
+    public void testEqualCountsAreOrderedByName() {
+        tagTrie.setCount("jakarta", 5);
+        Assert.assertEquals(List.of("jakarta", "java"), names(tagTrie.findTop("ja")));
+    }
+
+    private static List<String> names(Map<String, Integer> top) {
+        return List.copyOf(top.keySet());
+    }
+}
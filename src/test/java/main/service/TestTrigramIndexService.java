@@ -0,0 +1,111 @@
+package main.service;
+
+import main.config.BlogConfig;
+import main.model.projections.PostTagName;
+import main.model.projections.PostTitle;
+import main.model.repositories.PostRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+
+public class TestTrigramIndexService {
+
+    private static final long BUILD_TIMEOUT_MILLIS = 5000;
+
+    private TrigramIndexService indexService;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        BlogConfig config = new BlogConfig();
+        config.setTrigramIndexEnabled(true);
+        config.setTrigramIndexBatchSize(100);
+        config.setTrigramIndexMinSimilarity(0.3);
+        config.setTrigramIndexMaxCandidates(1000);
+        PostRepository postRepository = Mockito.mock(PostRepository.class);
+        Mockito.when(postRepository.findAllTitles(any(), eq(0))).thenReturn(List.of(
+                title(1, "Программирование на Java для начинающих"),
+                title(2, "Рецепт осеннего пирога с яблоками"),
+                title(3, "Путешествие по горам Кавказа")));
+        Mockito.when(postRepository.findAllTagNamesByPostIds(anyCollection())).thenReturn(List.of(
+                tagName(2, "выпечка"),
+                tagName(3, "туризм")));
+        indexService = new TrigramIndexService(postRepository, config);
+        indexService.buildOnStart();
+        long deadline = System.currentTimeMillis() + BUILD_TIMEOUT_MILLIS;
+        while (indexService.search("", 0, 10).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        indexService.close();
+    }
+
+    @Test
+    public void testMisspelledTitleWordFindsPost() {
+        Assert.assertEquals(List.of(1), search("програмирование"));
+        Assert.assertEquals(List.of(2), search("пирго"));
+        Assert.assertEquals(List.of(3), search("путишествие"));
+    }
+
+    @Test
+    public void testMisspelledTagFindsPost() {
+        Assert.assertEquals(List.of(2), search("выпичка"));
+        Assert.assertEquals(List.of(3), search("турисм"));
+    }
+
+    @Test
+    public void testMisspelledWordAmongOthersFindsPost() {
+        Assert.assertEquals(List.of(1), search("java для начинающихх"));
+    }
+
+    @Test
+    public void testUnrelatedQueryFindsNothing() {
+        Assert.assertTrue(search("велосипед").isEmpty());
+    }
+
+    private List<Integer> search(String query) {
+        Optional<Page<Integer>> result = indexService.search(query, 0, 10);
+        Assert.assertTrue(result.isPresent());
+        return result.get().getContent();
+    }
+
+    private static PostTitle title(int id, String title) {
+        return new PostTitle() {
+            @Override
+            public int getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+        };
+    }
+
+    private static PostTagName tagName(int postId, String name) {
+        return new PostTagName() {
+            @Override
+            public int getPostId() {
+                return postId;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
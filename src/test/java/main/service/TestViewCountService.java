@@ -0,0 +1,93 @@
+package main.service;
+
+import main.config.BlogConfig;
+import main.model.PostViewSketch;
+import main.model.repositories.PostViewSketchRepository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+
+public class TestViewCountService {
+
+    private static final int POST_ID = 1;
+
+    private JdbcTemplate jdbcTemplate;
+    private PostViewSketchRepository postViewSketchRepository;
+    private ViewCountService viewCountService;
+
+    @Before
+    public void setUp() {
+        BlogConfig config = new BlogConfig();
+        config.setPostViewSketchCacheSize(10);
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        postViewSketchRepository = Mockito.mock(PostViewSketchRepository.class);
+        viewCountService = new ViewCountService(jdbcTemplate, postViewSketchRepository,
+                Mockito.mock(ApplicationEventPublisher.class), Mockito.mock(PlatformTransactionManager.class), config);
+    }
+
+    @Test
+    public void testNewReaderWritesSketch() {
+        viewCountService.addView(POST_ID, "reader-1");
+        viewCountService.addView(POST_ID, "reader-1");
+        viewCountService.flush();
+
+        Assert.assertEquals(1, sketchBatches().size());
+        Assert.assertEquals(1, sketchBatches().get(0).size());
+        Assert.assertEquals(1, viewCountService.getUniqueViews(POST_ID));
+    }
+
+    @Test
+    public void testRepeatReaderDoesNotWriteSketch() {
+        viewCountService.addView(POST_ID, "reader-1");
+        viewCountService.flush();
+        viewCountService.addView(POST_ID, "reader-1");
+        viewCountService.flush();
+
+        Assert.assertEquals(1, sketchBatches().size());
+        Assert.assertEquals(2, viewBatches().size());
+    }
+
+    @Test
+    public void testReaderCountedInStoredSketchDoesNotWriteSketch() {
+        HyperLogLog stored = new HyperLogLog();
+        stored.offer(HyperLogLog.hash("reader-1"));
+        PostViewSketch persisted = new PostViewSketch();
+        persisted.setPostId(POST_ID);
+        persisted.setSketch(stored.toBytes());
+        persisted.setUniqueCount(1);
+        Mockito.when(postViewSketchRepository.findById(POST_ID)).thenReturn(Optional.of(persisted));
+
+        viewCountService.addView(POST_ID, "reader-1");
+        viewCountService.flush();
+
+        Assert.assertTrue(sketchBatches().isEmpty());
+        Assert.assertEquals(1, viewBatches().size());
+        Assert.assertEquals(1, viewCountService.getUniqueViews(POST_ID));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Object[]>> sketchBatches() {
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(jdbcTemplate, Mockito.atLeast(0)).batchUpdate(contains("post_view_sketches"),
+                batches.capture());
+        return batches.getAllValues();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Object[]>> viewBatches() {
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(jdbcTemplate, Mockito.atLeast(0)).batchUpdate(contains("view_count"), batches.capture());
+        return batches.getAllValues();
+    }
+}
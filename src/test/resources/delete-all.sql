@@ -1,4 +1,3 @@
-DELETE FROM captcha_codes;
 DELETE FROM global_settings;
 DELETE FROM tag2post;
 DELETE FROM tags;
@@ -3,10 +3,6 @@ INSERT INTO global_settings(id, code, name, value) VALUES
 (2, 'POST_PREMODERATION', 'Премодерация постов', 'NO'),
 (3, 'STATISTICS_IS_PUBLIC', 'Показать статистику блога', 'NO');
 
-INSERT INTO captcha_codes(id, code, secret_code, time) VALUES
-(10, 'xajefihiz', '4PFn62dKkbdUqGIeqOBMbr', NOW()),
-(11, 'nohuhocina', 'vfbPFX9eVuUIVdJRCwchow', NOW());
-
 INSERT INTO users(id, email, password, is_moderator, name, reg_time) VALUES
 (10, 'test_user@mail.ru', '$2a$12$6L48rTqMMsOEqgIWH5VPa.2pZldL8ceTW3nHfsArUzAJu/h8imX5K', 0, 'Test', NOW()),
 (30, 'test_moderator@mail.ru', '$2a$12$6L48rTqMMsOEqgIWH5VPa.2pZldL8ceTW3nHfsArUzAJu/h8imX5K', 1, 'Test', NOW());
@@ -62,4 +58,15 @@ INSERT INTO post_votes(id, time, value, post_id, user_id) VALUES
 (102, '2022-05-15 10:10:10.0', 1, 102, 10),
 (103, '2022-05-15 10:10:10.0', -1, 103, 10),
 (104, '2022-05-15 10:10:10.0', -1, 104, 10),
-(105, '2022-05-15 10:10:10.0', -1, 111, 30);
\ No newline at end of file
+(105, '2022-05-15 10:10:10.0', -1, 111, 30);
+
+UPDATE posts p SET
+p.like_count = (SELECT COUNT(*) FROM post_votes pv WHERE pv.post_id = p.id AND pv.value = 1),
+p.dislike_count = (SELECT COUNT(*) FROM post_votes pv WHERE pv.post_id = p.id AND pv.value = -1),
+p.comment_count = (SELECT COUNT(*) FROM post_comments pc WHERE pc.post_id = p.id);
+
+UPDATE posts SET
+announce = CONCAT(SUBSTRING(text, 1, CHAR_LENGTH(text) - LOCATE(' ', REVERSE(text))), '...'),
+announce_length = 150;
+
+UPDATE posts SET is_published = CASE WHEN time <= NOW() THEN 1 ELSE 0 END;
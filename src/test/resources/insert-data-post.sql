@@ -3,10 +3,6 @@ INSERT INTO global_settings(id, code, name, value) VALUES
 (2, 'POST_PREMODERATION', 'Премодерация постов', 'YES'),
 (3, 'STATISTICS_IS_PUBLIC', 'Показать статистику блога', 'NO');
 
-INSERT INTO captcha_codes(id, code, secret_code, time)
-VALUES (10, 'xajefihiz', '4PFn62dKkbdUqGIeqOBMbr', NOW()),
-(11, 'nohuhocina', 'vfbPFX9eVuUIVdJRCwchow', NOW());
-
 INSERT INTO users(id, email, password, is_moderator, name, reg_time) VALUES
 (10, 'test@mail.ru', '$2a$12$6L48rTqMMsOEqgIWH5VPa.2pZldL8ceTW3nHfsArUzAJu/h8imX5K', 1, 'Test', NOW()),
 (20, 'test_user@mail.ru', '$2a$12$6L48rTqMMsOEqgIWH5VPa.2pZldL8ceTW3nHfsArUzAJu/h8imX5K', 0, 'Test', NOW()),
@@ -72,4 +68,15 @@ INSERT INTO post_comments(id, text, time, post_id, user_id) VALUES
 (14, 'Комментарий 5', '2021-06-17 10:32:10.0', 103, 10),
 (15, 'Комментарий 6', '2021-05-16 10:32:10.0', 101, 10),
 (16, 'Комментарий 7', '2021-05-16 11:32:10.0', 102, 10),
-(17, 'Комментарий 7', '2021-09-18 10:32:10.0', 106, 10);
\ No newline at end of file
+(17, 'Комментарий 7', '2021-09-18 10:32:10.0', 106, 10);
+
+UPDATE posts p SET
+p.like_count = (SELECT COUNT(*) FROM post_votes pv WHERE pv.post_id = p.id AND pv.value = 1),
+p.dislike_count = (SELECT COUNT(*) FROM post_votes pv WHERE pv.post_id = p.id AND pv.value = -1),
+p.comment_count = (SELECT COUNT(*) FROM post_comments pc WHERE pc.post_id = p.id);
+
+UPDATE posts SET
+announce = CONCAT(SUBSTRING(text, 1, CHAR_LENGTH(text) - LOCATE(' ', REVERSE(text))), '...'),
+announce_length = 150;
+
+UPDATE posts SET is_published = CASE WHEN time <= NOW() THEN 1 ELSE 0 END;